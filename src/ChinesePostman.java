@@ -1,14 +1,25 @@
 import m1graphs2024.Edge;
+import m1graphs2024.EdgeConsumer;
 import m1graphs2024.UndirectedGraph;
 import m1graphs2024.Node;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ChinesePostman {
 
     private final Integer INFINITY = Integer.MAX_VALUE;
     private String type = "";
     private int extraCost = 0;
+    private int lowerBound = 0;
+    private int gapThreshold = 0;
+    private int randomAttempts = 1;
+    private ShortestPathCache shortestPathCache = null;
 
     UndirectedGraph graph;
 
@@ -16,6 +27,55 @@ public class ChinesePostman {
         this.graph = graph;
     }
 
+    /**
+     * The function `getExtraCost` returns the cost of the edges duplicated by the last solve.
+     * 
+     * @return int
+     */
+    public int getExtraCost(){
+        return extraCost;
+    }
+
+    /**
+     * The function `getLowerBound` returns the lower bound on the extra cost computed by the last solve.
+     * 
+     * @return int
+     */
+    public int getLowerBound(){
+        return lowerBound;
+    }
+
+    /**
+     * The function `setGapThreshold` sets the gap between a matching and the lower bound under which
+     * the solver accepts the matching without searching further.
+     * 
+     * @param gapThreshold int
+     */
+    public void setGapThreshold(int gapThreshold){
+        this.gapThreshold = gapThreshold;
+    }
+
+    /**
+     * The function `setRandomAttempts` sets how many random matchings the random method may draw
+     * before giving up on reaching the gap threshold.
+     * 
+     * @param randomAttempts int
+     */
+    public void setRandomAttempts(int randomAttempts){
+        this.randomAttempts = Math.max(1, randomAttempts);
+    }
+
+    /**
+     * The function `setShortestPathCache` makes the Chinese circuit read the shortest paths between
+     * odd nodes from a cache, and store them there when the graph was never solved, instead of
+     * running Floyd-Warshall. Passing null turns the cache off.
+     * 
+     * @param shortestPathCache ShortestPathCache
+     */
+    public void setShortestPathCache(ShortestPathCache shortestPathCache){
+        this.shortestPathCache = shortestPathCache;
+    }
+
     /**
      * The function `findEulerianWay` checks if the graph is a disconnected graph, and then 
      * determines if it is Eulerian, Semi-Eulerian, or Non-Eulerian. 
@@ -52,6 +112,105 @@ public class ChinesePostman {
         return findEulerianWay(false);
     }
 
+    /**
+     * The function `findClosedWay` returns a circuit starting and ending at the given node: an
+     * Eulerian circuit if the graph is Eulerian, a Chinese circuit otherwise.
+     * 
+     * @param startId int
+     * @return List<Node>
+     */
+    public List<Node> findClosedWay(int startId){
+        if(isEulerian()){
+            type = "Eulerian";
+            extraCost = 0;
+            lowerBound = 0;
+            return eulerianTrail(new Node(graph, startId));
+        }
+        type = "Non Eulerian";
+        return chineseCircuit(new Node(graph, startId), false);
+    }
+
+    /**
+     * The function `solveInParallel` computes a closed circuit for each graph on a pool of worker
+     * threads, each graph being solved by its own `ChinesePostman`.
+     * 
+     * @param graphs List<UndirectedGraph>
+     * @param startIds List<Integer> the node where each circuit starts and ends
+     * @return List<PostmanRoute> in the same order as the graphs
+     */
+    public static List<PostmanRoute> solveInParallel(List<UndirectedGraph> graphs, List<Integer> startIds){
+        int threads = Math.max(1, Math.min(graphs.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try{
+            List<Future<PostmanRoute>> futures = new ArrayList<>();
+            for(int i = 0; i < graphs.size(); ++i){
+                UndirectedGraph g = graphs.get(i);
+                int startId = startIds.get(i);
+                futures.add(pool.submit(() -> {
+                    ChinesePostman solver = new ChinesePostman(g);
+                    List<Node> circuit = solver.findClosedWay(startId);
+                    return new PostmanRoute(g, circuit, solver.getExtraCost(), solver.getLowerBound(), solver.createLabel(circuit));
+                }));
+            }
+            List<PostmanRoute> routes = new ArrayList<>();
+            for(Future<PostmanRoute> future : futures){
+                routes.add(future.get());
+            }
+            return routes;
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while solving the routes", e);
+        }catch(ExecutionException e){
+            throw new RuntimeException("Error while solving a route: " + e.getCause().getMessage(), e.getCause());
+        }finally{
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The function `findComponentWays` solves the graph one connected component at a time, so that a
+     * disconnected graph is not rejected: every component holding edges gets its own closed circuit,
+     * starting at its smallest node, the components being solved in parallel by `solveInParallel`.
+     * The extra cost and the lower bound become the sums over the components.
+     *
+     * @return List<PostmanRoute> one route per component holding edges, in increasing order of
+     * their smallest node
+     */
+    public List<PostmanRoute> findComponentWays(){
+        List<UndirectedGraph> components = new ArrayList<>();
+        List<Integer> startIds = new ArrayList<>();
+        for(UndirectedGraph component : graph.getConnectedComponents()){
+            if(component.getAllEdges().isEmpty()){
+                continue;
+            }
+            components.add(component);
+            startIds.add(component.smallestNodeId());
+        }
+        List<PostmanRoute> routes = solveInParallel(components, startIds);
+        type = "Connected components";
+        extraCost = 0;
+        lowerBound = 0;
+        for(PostmanRoute route : routes){
+            extraCost += route.getExtraCost();
+            lowerBound += route.getLowerBound();
+        }
+        return routes;
+    }
+
+    /**
+     * The function `totalCost` adds up the cost of the routes, as returned by `findComponentWays`.
+     *
+     * @param routes List<PostmanRoute>
+     * @return long
+     */
+    public static long totalCost(List<PostmanRoute> routes){
+        long cost = 0;
+        for(PostmanRoute route : routes){
+            cost += route.getTotalCost();
+        }
+        return cost;
+    }
+
     /**
      * The function checks if all nodes in a graph have even degrees, indicating that the graph is
      * Eulerian.
@@ -91,6 +250,9 @@ public class ChinesePostman {
             case "Non Eulerian":
                 label += "Chinese Circuit: ";
                 break;
+            case "Rural Postman":
+                label += "Rural Postman Circuit: ";
+                break;
         }
         label += "[";
         List<Edge> visited = new ArrayList<>();
@@ -114,6 +276,7 @@ public class ChinesePostman {
         label = label.substring(0, label.length()-2)+"]\n\t";
         label += "Total Cost: "+totalCost;
         label += "\n\tExtra Cost: "+extraCost;
+        label += "\n\tLower Bound: "+lowerBound;
         return label;
     }
 
@@ -137,7 +300,9 @@ public class ChinesePostman {
     public List<Node> eulerianTrail(UndirectedGraph g, Node x){
         List<Node> trail = new ArrayList<>();
         trail.add(x);
-        List<Edge> edges = g.getOutEdges(x);
+        List<Edge> edges = new ArrayList<>();
+        EdgeConsumer collect = edges::add;
+        g.forEachIncident(x, collect);
         if(edges.isEmpty()){
             return trail;
         }
@@ -150,7 +315,8 @@ public class ChinesePostman {
             }
             g.removeEdge(e.from(),e.to());
             trail.add(x);
-            edges = g.getOutEdges(x);
+            edges.clear();
+            g.forEachIncident(x, collect);
         }
         List<Node> trail_prime = new ArrayList<>();
         for(int i = 0; i < trail.size(); ++i){
@@ -172,41 +338,262 @@ public class ChinesePostman {
 
     /**
      * The function `chineseCircuit` finds a Chinese postman circuit in a graph starting from a given
-     * node, using the Floyd-Warshall algorithm and pairwise matching of odd-degree nodes.
+     * node, using the Floyd-Warshall algorithm, or the shortest path cache when one is set, and
+     * pairwise matching of odd-degree nodes.
      * 
      * @param start Node
      * @param random boolean
      * @return List<Node>
      */
     public List<Node> chineseCircuit(Node start, boolean random){
-        Map<Pair<Node, Node>, Pair<Integer, Node>> floyd_warshall = floydWarshall();
-        List<Node> oddNodes = new ArrayList<>();
-        graph.getAllNodes().stream().filter(node -> graph.degree(node) % 2 != 0).forEach(oddNodes::add);
+        duplicateShortestPaths(random);
+        return eulerianTrail(start);
+    }
 
-        Pair<List<Pair<Node, Node>>, Integer> lengthPairwiseMatching = null;
-        if(random){
-            lengthPairwiseMatching = lengthPairwiseMatchingRandom(oddNodes);
+    /**
+     * The function `exportClosedWay` writes a circuit starting and ending at the given node to a file,
+     * step by step, with `RouteExporter`: an Eulerian circuit if the graph is Eulerian, a Chinese
+     * circuit otherwise. The circuit is never held in memory as a list of nodes.
+     * 
+     * @param startId int
+     * @param path Path a `.csv` file, or a binary route file otherwise, gzipped if it ends with `.gz`
+     * @return long the number of edges walked
+     * @throws IOException if the file cannot be written
+     */
+    public long exportClosedWay(int startId, Path path) throws IOException {
+        if(isEulerian()){
+            type = "Eulerian";
+            extraCost = 0;
+            lowerBound = 0;
         }else{
-            lengthPairwiseMatching = lengthPairwiseMatching(oddNodes);
+            type = "Non Eulerian";
+            duplicateShortestPaths(false);
         }
+        return RouteExporter.export(graph, startId, path);
+    }
+
+    /**
+     * The function `duplicateShortestPaths` pairs the odd nodes and adds to the graph, as red edges,
+     * the shortest paths between the nodes of each pair, which makes the graph Eulerian.
+     * 
+     * @param random boolean
+     */
+    private void duplicateShortestPaths(boolean random){
+        List<Node> oddNodes = new ArrayList<>();
+        graph.getAllNodes().stream().filter(node -> graph.degree(node) % 2 != 0).forEach(oddNodes::add);
+        ShortestPaths paths = shortestPathCache == null ? shortestPaths() : shortestPathCache.shortestPaths(graph, oddNodes);
+
+        Pair<List<Pair<Node, Node>>, Integer> lengthPairwiseMatching = pairOddNodes(oddNodes, paths, random);
         List<Pair<Node, Node>> bestMatching = lengthPairwiseMatching.getFirst();
         int extraCost = lengthPairwiseMatching.getSecond();
         for(Pair<Node, Node> pair : bestMatching){
-            Node from = pair.getFirst();
-            Node curr = from;
-            while(!curr.equals(pair.getSecond())){
-                Node next = floyd_warshall.get(new Pair<>(curr, pair.getSecond())).getSecond();
-                Node futur_curr = floyd_warshall.get(new Pair<>(curr, next)).getSecond();
-                while(!futur_curr.equals(floyd_warshall.get(new Pair<>(curr, futur_curr)).getSecond())){
-                    futur_curr = floyd_warshall.get(new Pair<>(curr, futur_curr)).getSecond();
-                }
-                Integer weight = floyd_warshall.get(new Pair<>(curr, futur_curr)).getFirst();
-                graph.addEdge(curr.getId(), futur_curr.getId(), weight, "red");
-                curr = futur_curr;
+            List<Node> path = shortestPathHops(paths, pair.getFirst(), pair.getSecond());
+            for(int i = 0; i < path.size()-1; ++i){
+                int weight = hopWeight(paths, path.get(i), path.get(i+1), pair.getSecond());
+                graph.addEdge(path.get(i).getId(), path.get(i+1).getId(), weight, "red");
             }
         }
         this.extraCost = extraCost;
-        return eulerianTrail(start);
+    }
+
+    /**
+     * The function `pairOddNodes` computes the lower bound on the extra cost and pairs the odd nodes,
+     * either with the exact method (skipped when a greedy matching is already within the gap
+     * threshold) or with repeated random matchings.
+     * 
+     * @param oddNodes List<Node>
+     * @param paths ShortestPaths
+     * @param random boolean
+     * @return a Pair containing the chosen matching and its total weight.
+     */
+    private Pair<List<Pair<Node, Node>>, Integer> pairOddNodes(List<Node> oddNodes, ShortestPaths paths, boolean random){
+        this.lowerBound = extraCostLowerBound(oddNodes, paths);
+        Pair<List<Pair<Node, Node>>, Integer> lengthPairwiseMatching;
+        if(random){
+            lengthPairwiseMatching = lengthPairwiseMatchingRandom(new ArrayList<>(oddNodes), paths);
+            for(int attempt = 1; attempt < randomAttempts && lengthPairwiseMatching.getSecond() - lowerBound > gapThreshold; ++attempt){
+                Pair<List<Pair<Node, Node>>, Integer> candidate = lengthPairwiseMatchingRandom(new ArrayList<>(oddNodes), paths);
+                if(candidate.getSecond() < lengthPairwiseMatching.getSecond()){
+                    lengthPairwiseMatching = candidate;
+                }
+            }
+        }else{
+            lengthPairwiseMatching = lengthPairwiseMatchingGreedy(oddNodes, paths);
+            if(lengthPairwiseMatching.getSecond() - lowerBound > gapThreshold){
+                lengthPairwiseMatching = lengthPairwiseMatching(oddNodes, paths);
+            }
+        }
+        return lengthPairwiseMatching;
+    }
+
+    /**
+     * The function `shortestPathHops` unfolds a shortest path into the list of its nodes, every two
+     * consecutive nodes being joined by an edge of the graph.
+     * 
+     * @param paths ShortestPaths
+     * @param from Node
+     * @param to Node
+     * @return List<Node>
+     */
+    public List<Node> shortestPathHops(ShortestPaths paths, Node from, Node to){
+        List<Node> path = new ArrayList<>();
+        Node curr = from;
+        path.add(curr);
+        while(!curr.equals(to)){
+            curr = paths.nextHop(curr, to);
+            path.add(curr);
+        }
+        return path;
+    }
+
+    /**
+     * The function `hopWeight` returns the weight of the edge taken between two consecutive nodes of
+     * a shortest path, which is what the path gets shorter by.
+     */
+    private static int hopWeight(ShortestPaths paths, Node from, Node hop, Node to){
+        return paths.distance(from, to) - paths.distance(hop, to);
+    }
+
+    /**
+     * The function `shortestPaths` runs Floyd-Warshall on the graph.
+     *
+     * @return ShortestPaths, null if the graph is disconnected
+     */
+    private ShortestPaths shortestPaths(){
+        Map<Pair<Node, Node>, Pair<Integer, Node>> floyd_warshall = floydWarshall();
+        return floyd_warshall == null ? null : new FloydWarshallPaths(floyd_warshall);
+    }
+
+    /**
+     * The function `ruralPostman` finds a closed walk covering only the required edges, the edges
+     * having the colour `requiredColor`, while every other edge may be used for deadheading.
+     * The components of the required edges are first joined along a minimum spanning tree of their
+     * shortest distances, then the remaining odd nodes are paired like in `chineseCircuit`.
+     * The deadheading edges are added to the graph in red.
+     * 
+     * @param requiredColor String
+     * @param random boolean
+     * @return List<Node>, empty if the graph is disconnected or has no required edge
+     */
+    public List<Node> ruralPostman(String requiredColor, boolean random){
+        ShortestPaths paths = shortestPaths();
+        UndirectedGraph required = new UndirectedGraph();
+        for(Edge e : graph.getAllEdges()){
+            if(requiredColor.equals(e.getColor())){
+                addBothWays(required, e.from().getId(), e.to().getId(), e.getWeight(), e.getColor());
+            }
+        }
+        if(paths == null || required.nbEdges() == 0){
+            type = paths == null ? "Non connect graph" : "Rural Postman";
+            return new ArrayList<>();
+        }
+        type = "Rural Postman";
+        int extraCost = 0;
+
+        List<List<Node>> components = new ArrayList<>();
+        Set<Node> seen = new HashSet<>();
+        for(Node n : required.getAllNodes()){
+            if(seen.add(n)){
+                List<Node> component = new ArrayList<>();
+                Deque<Node> toDo = new ArrayDeque<>();
+                toDo.add(n);
+                while(!toDo.isEmpty()){
+                    Node curr = toDo.poll();
+                    component.add(graph.getNode(curr.getId()));
+                    for(Node succ : required.getSuccessors(curr)){
+                        if(seen.add(succ)){
+                            toDo.add(succ);
+                        }
+                    }
+                }
+                components.add(component);
+            }
+        }
+
+        // Prim's algorithm over the components, two components being as close as their closest nodes
+        int size = components.size();
+        boolean[] inTree = new boolean[size];
+        int[] bestDistance = new int[size];
+        List<Pair<Node, Node>> bestLink = new ArrayList<>(Collections.nCopies(size, null));
+        Arrays.fill(bestDistance, INFINITY);
+        bestDistance[0] = 0;
+        for(int step = 0; step < size; ++step){
+            int c = -1;
+            for(int i = 0; i < size; ++i){
+                if(!inTree[i] && (c == -1 || bestDistance[i] < bestDistance[c])){
+                    c = i;
+                }
+            }
+            inTree[c] = true;
+            if(bestLink.get(c) != null){
+                extraCost += bestDistance[c];
+                addDeadheadPath(required, paths, bestLink.get(c).getFirst(), bestLink.get(c).getSecond());
+            }
+            for(int i = 0; i < size; ++i){
+                if(inTree[i]){
+                    continue;
+                }
+                for(Node x : components.get(c)){
+                    for(Node y : components.get(i)){
+                        int distance = paths.distance(x, y);
+                        if(distance < bestDistance[i]){
+                            bestDistance[i] = distance;
+                            bestLink.set(i, new Pair<>(x, y));
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<Integer, Integer> degrees = new HashMap<>();
+        for(Edge e : required.getAllEdges()){
+            degrees.merge(e.from().getId(), 1, Integer::sum);
+            degrees.merge(e.to().getId(), 1, Integer::sum);
+        }
+        List<Node> oddNodes = new ArrayList<>();
+        degrees.forEach((id, degree) -> {
+            if(degree % 2 != 0){
+                oddNodes.add(graph.getNode(id));
+            }
+        });
+        Pair<List<Pair<Node, Node>>, Integer> lengthPairwiseMatching = pairOddNodes(oddNodes, paths, random);
+        for(Pair<Node, Node> pair : lengthPairwiseMatching.getFirst()){
+            addDeadheadPath(required, paths, pair.getFirst(), pair.getSecond());
+        }
+        this.extraCost = extraCost + lengthPairwiseMatching.getSecond();
+        return eulerianTrail(required, required.getNode(required.smallestNodeId()));
+    }
+
+    /**
+     * The function `ruralPostman` finds a rural postman circuit with the optimal pairing method.
+     * 
+     * @param requiredColor String
+     * @return List<Node>
+     */
+    public List<Node> ruralPostman(String requiredColor){
+        return ruralPostman(requiredColor, false);
+    }
+
+    /**
+     * The function `addBothWays` stores an undirected edge in both directions, the way `copy` does,
+     * so that `getAllEdges` and `eulerianTrail` see it exactly once.
+     */
+    private static void addBothWays(UndirectedGraph g, int from, int to, Integer weight, String color){
+        g.addEdge(new Edge(from, to, weight, g, color));
+        g.addEdge(new Edge(to, from, weight, g, color));
+    }
+
+    /**
+     * The function `addDeadheadPath` adds a shortest path between two nodes both to the subgraph of
+     * required edges and, in red, to the graph.
+     */
+    private void addDeadheadPath(UndirectedGraph required, ShortestPaths paths, Node from, Node to){
+        List<Node> path = shortestPathHops(paths, from, to);
+        for(int i = 0; i < path.size()-1; ++i){
+            int weight = hopWeight(paths, path.get(i), path.get(i+1), to);
+            addBothWays(required, path.get(i).getId(), path.get(i+1).getId(), weight, "red");
+            graph.addEdge(path.get(i).getId(), path.get(i+1).getId(), weight, "red");
+        }
     }
 
     /**
@@ -243,9 +630,9 @@ public class ChinesePostman {
                 }
             }
         }
-        for(Node x : nodes){
-            for(Node y : nodes){
-                for(Node z : nodes){
+        for(Node z : nodes){
+            for(Node x : nodes){
+                for(Node y : nodes){
                     Pair<Node, Node> xz = new Pair<>(x, z);
                     Pair<Node, Node> zy = new Pair<>(z, y);
                     Pair<Node, Node> xy = new Pair<>(x, y);
@@ -272,15 +659,27 @@ public class ChinesePostman {
      * and an integer representing the total weight of the best matching.
      */
     public Pair<List<Pair<Node, Node>>, Integer> lengthPairwiseMatching(List<Node> v){
+        return lengthPairwiseMatching(v, shortestPaths());
+    }
+
+    /**
+     * The function `lengthPairwiseMatching` finds the best pairwise matching of nodes in a list using
+     * shortest distances that were already computed.
+     * 
+     * @param v List<Node>
+     * @param paths ShortestPaths
+     * @return a Pair containing a list of pairs of nodes representing the best match, 
+     * and an integer representing the total weight of the best matching.
+     */
+    public Pair<List<Pair<Node, Node>>, Integer> lengthPairwiseMatching(List<Node> v, ShortestPaths paths){
         v.sort(Comparator.comparing(Node::getId));
         List<Pair<Node, Node>> bestMatching = new ArrayList<>();
         Integer bestMatchingWeight = Integer.MAX_VALUE;
-        Map<Pair<Node, Node>, Pair<Integer, Node>> floyd_warshall = floydWarshall();
         List<List<Pair<Node, Node>>> listPairwiseMatching = listPairsOddNodes(new HashSet<>(v), new ArrayList<>(), new ArrayList<>());
         for(List<Pair<Node, Node>> pairs : listPairwiseMatching){
             Integer weight = 0;
             for(Pair<Node, Node> pair : pairs){
-                weight += floyd_warshall.get(pair).getFirst();
+                weight += paths.distance(pair.getFirst(), pair.getSecond());
             }
             if(weight < bestMatchingWeight){
                 bestMatching = pairs;
@@ -300,31 +699,109 @@ public class ChinesePostman {
      * nodes, and an Integer representing the total weight of the pairwise matchings.
      */
     public Pair<List<Pair<Node, Node>>, Integer> lengthPairwiseMatchingRandom(List<Node> v){
+        return lengthPairwiseMatchingRandom(v, shortestPaths());
+    }
+
+    /**
+     * The function `lengthPairwiseMatchingRandom` randomly selects pairs of nodes from a list using
+     * shortest distances that were already computed.
+     * 
+     * @param v List<Node>
+     * @param paths ShortestPaths
+     * @return A Pair containing a List of Pair objects representing pairwise matchings between
+     * nodes, and an Integer representing the total weight of the pairwise matchings.
+     */
+    public Pair<List<Pair<Node, Node>>, Integer> lengthPairwiseMatchingRandom(List<Node> v, ShortestPaths paths){
         List<Pair<Node, Node>> matching = new ArrayList<>();
         Integer weight = 0;
-        Map<Pair<Node, Node>, Pair<Integer, Node>> floyd_warshall = floydWarshall();
         Random random = new Random();
         while(!v.isEmpty()){
             Node x = v.get(random.nextInt(v.size()));
             v.remove(x);
             Node y = v.get(random.nextInt(v.size()));
             v.remove(y);
-            Pair<Node, Node> pair = new Pair<>(x, y);
-            matching.add(pair);
-            Node curr = pair.getFirst();
-            while(!curr.equals(pair.getSecond())){
-                Node next = floyd_warshall.get(new Pair<>(curr, pair.getSecond())).getSecond();
-                Node futur_curr = floyd_warshall.get(new Pair<>(curr, next)).getSecond();
-                while(!futur_curr.equals(floyd_warshall.get(new Pair<>(curr, futur_curr)).getSecond())){
-                    futur_curr = floyd_warshall.get(new Pair<>(curr, futur_curr)).getSecond();
+            matching.add(new Pair<>(x, y));
+            weight += paths.distance(x, y);
+        }
+        return new Pair<>(matching, weight);
+    }
+
+    /**
+     * The function `lengthPairwiseMatchingGreedy` repeatedly pairs the two closest unmatched nodes.
+     * It gives a cheap upper bound that is often already optimal on road-like graphs.
+     * 
+     * @param v List<Node>
+     * @param paths ShortestPaths
+     * @return A Pair containing the greedy matching and its total weight.
+     */
+    public Pair<List<Pair<Node, Node>>, Integer> lengthPairwiseMatchingGreedy(List<Node> v, ShortestPaths paths){
+        List<Node> remaining = new ArrayList<>(v);
+        remaining.sort(Comparator.comparing(Node::getId));
+        List<Pair<Node, Node>> matching = new ArrayList<>();
+        int weight = 0;
+        while(remaining.size() > 1){
+            int bestI = 0, bestJ = 1;
+            int bestDistance = INFINITY;
+            for(int i = 0; i < remaining.size(); ++i){
+                for(int j = i+1; j < remaining.size(); ++j){
+                    int distance = paths.distance(remaining.get(i), remaining.get(j));
+                    if(distance < bestDistance){
+                        bestDistance = distance;
+                        bestI = i;
+                        bestJ = j;
+                    }
                 }
-                weight += floyd_warshall.get(new Pair<>(curr, futur_curr)).getFirst();
-                curr = futur_curr;
             }
+            matching.add(new Pair<>(remaining.get(bestI), remaining.get(bestJ)));
+            weight += bestDistance;
+            remaining.remove(bestJ);
+            remaining.remove(bestI);
         }
         return new Pair<>(matching, weight);
     }
 
+    /**
+     * The function `extraCostLowerBound` computes a lower bound on the cost of any perfect matching
+     * of the odd nodes. Each node starts with half the distance to its nearest odd neighbour, which is
+     * a feasible dual of the matching relaxation, then every node raises its dual value as far as the
+     * slack of its constraints allows. The values are kept doubled so the bound stays in integers.
+     * 
+     * @param v List<Node>
+     * @param paths ShortestPaths
+     * @return int
+     */
+    public int extraCostLowerBound(List<Node> v, ShortestPaths paths){
+        int size = v.size();
+        if(size < 2){
+            return 0;
+        }
+        long[][] distances = new long[size][size];
+        long[] dual = new long[size];
+        for(int i = 0; i < size; ++i){
+            dual[i] = Long.MAX_VALUE;
+            for(int j = 0; j < size; ++j){
+                distances[i][j] = paths.distance(v.get(i), v.get(j));
+                if(i != j && distances[i][j] < dual[i]){
+                    dual[i] = distances[i][j];
+                }
+            }
+        }
+        for(int i = 0; i < size; ++i){
+            long slack = Long.MAX_VALUE;
+            for(int j = 0; j < size; ++j){
+                if(i != j){
+                    slack = Math.min(slack, 2*distances[i][j] - dual[i] - dual[j]);
+                }
+            }
+            dual[i] += slack;
+        }
+        long sum = 0;
+        for(long value : dual){
+            sum += value;
+        }
+        return (int) ((sum + 1) / 2);
+    }
+
     /**
      * The function recursively generates all possible pairs of odd nodes from a given set of nodes.
      * 
@@ -0,0 +1,497 @@
+import m1graphs2024.CsrGraph;
+import m1graphs2024.DotParser;
+import m1graphs2024.ParallelBreadthFirstSearch;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The class `CsrChinesePostman` solves the Chinese postman problem on an undirected `CsrGraph`,
+ * which can be kept outside of the heap (`CsrGraph.toDirect`, `CsrGraph.toTemporaryFile`) for
+ * networks too large to be loaded as an `UndirectedGraph`. No `Node` or `Edge` is built: the
+ * duplicated edges are kept in int arrays and the circuit is streamed by `RouteExporter`. The edges
+ * of the graph keep the numbers given by `CsrGraph.edge`, the duplicated edges coming after them.
+ * <p>
+ * The distances between all the odd nodes are never computed. A Dijkstra is run from every odd
+ * node, stopped once it has settled its nearest odd nodes, the candidates (8 by default). The
+ * closest candidates are paired first, as `ChinesePostman.lengthPairwiseMatchingGreedy` does over
+ * all the pairs; the odd nodes left without a free candidate are matched again the same way among
+ * themselves. Pairs are then swapped two by two while it lowers the cost, as long as the new pairs
+ * are candidates. The result is an approximation, which `getLowerBound` bounds from below. An exact
+ * search, `ExactMatching`, exponential in the number of odd nodes, is only run if it was enabled by
+ * `setExactMatchingLimit` and there are few enough odd nodes.
+ * </p>
+ * <p>
+ * Besides the graph, the matching takes about 16 bytes per odd node and per candidate, and the
+ * searches six int arrays of the size of the graph, reused from one search to the next. The
+ * shortest paths are not kept: each chosen one is found again by a search stopped at its end.
+ * </p>
+ */
+public class CsrChinesePostman {
+
+    /**
+     * The number of nearest odd nodes among which each odd node looks for its pair by default.
+     */
+    public static final int DEFAULT_CANDIDATES = 8;
+
+    private final CsrGraph graph;
+    private int[] extraFrom = new int[0];
+    private int[] extraTo = new int[0];
+    private int[] extraWeight = new int[0];
+    private int nbExtra = 0;
+    private int extraCost = 0;
+    private int lowerBound = 0;
+    private int candidates = DEFAULT_CANDIDATES;
+    private int exactMatchingLimit = 0;
+    private int gapThreshold = 0;
+    private boolean solved = false;
+
+    public CsrChinesePostman(CsrGraph graph){
+        if(graph.isDirected()){
+            throw new IllegalArgumentException("The graph must be undirected.");
+        }
+        this.graph = graph;
+    }
+
+    /**
+     * The function `setCandidates` sets how many of its nearest odd nodes each odd node may be
+     * paired with, before the nodes left are matched again among themselves. More candidates give
+     * a better matching for more time and memory. It has no effect once the graph is solved.
+     *
+     * @param candidates int at least 1
+     */
+    public void setCandidates(int candidates){
+        if(candidates < 1){
+            throw new IllegalArgumentException("At least one candidate is needed: " + candidates);
+        }
+        this.candidates = candidates;
+    }
+
+    /**
+     * The function `setExactMatchingLimit` enables the exact matching for graphs having at most the
+     * given number of odd nodes: when the matching found is more than the gap threshold above the
+     * lower bound, `ExactMatching` replaces it with the best one, in a time exponential in the
+     * number of odd nodes. It is 0, disabled, by default, and has no effect once the graph is solved.
+     *
+     * @param maxOddNodes int
+     */
+    public void setExactMatchingLimit(int maxOddNodes){
+        this.exactMatchingLimit = maxOddNodes;
+    }
+
+    /**
+     * The function `setGapThreshold` sets the gap between the matching and the lower bound under
+     * which the exact matching, when enabled, is not run, as in `ChinesePostman.setGapThreshold`.
+     *
+     * @param gapThreshold int
+     */
+    public void setGapThreshold(int gapThreshold){
+        this.gapThreshold = gapThreshold;
+    }
+
+    /**
+     * The function `getExtraCost` returns the cost of the duplicated edges.
+     *
+     * @return int
+     */
+    public int getExtraCost(){
+        solve();
+        return extraCost;
+    }
+
+    /**
+     * The function `getLowerBound` returns a lower bound on the extra cost, computed like
+     * `ChinesePostman.extraCostLowerBound` from the candidates only: the odd nodes that are not a
+     * candidate of a node are known to be at least as far as its last candidate.
+     *
+     * @return int
+     */
+    public int getLowerBound(){
+        solve();
+        return lowerBound;
+    }
+
+    /**
+     * The function `getTotalCost` returns the cost of the circuit, every edge of the graph once and
+     * the duplicated edges.
+     *
+     * @return long
+     */
+    public long getTotalCost(){
+        solve();
+        return graph.totalWeight() + extraCost;
+    }
+
+    /**
+     * The function `getNbExtraEdges` returns the number of duplicated edges.
+     *
+     * @return int
+     */
+    public int getNbExtraEdges(){
+        solve();
+        return nbExtra;
+    }
+
+    /**
+     * The function `solve` pairs the odd nodes and duplicates the shortest path between the nodes
+     * of each pair, once: later calls do nothing.
+     *
+     * @throws IllegalStateException if the graph is not connected or has more than `MAX_ODD_NODES`
+     * odd nodes
+     */
+    public void solve(){
+        if(solved){
+            return;
+        }
+        int n = graph.nbNodes();
+        int nbOdd = 0;
+        for(int i = 0; i < n; ++i){
+            nbOdd += graph.degree(i) % 2;
+        }
+        if(n > 0 && !new ParallelBreadthFirstSearch(graph, 0).reachesAllArcs()){
+            throw new IllegalStateException("Non connect graph");
+        }
+        int[] odd = new int[nbOdd];
+        for(int i = 0, k = 0; i < n; ++i){
+            if(graph.degree(i) % 2 != 0){
+                odd[k++] = i;
+            }
+        }
+        if(nbOdd > 0){
+            match(odd);
+        }
+        solved = true;
+    }
+
+    /**
+     * The function `match` pairs the odd nodes and duplicates the shortest path between the nodes of
+     * each pair.
+     *
+     * @param odd int[] the indexes of the odd nodes
+     */
+    private void match(int[] odd){
+        int nbOdd = odd.length;
+        int k = Math.min(candidates, nbOdd-1);
+        if((long) nbOdd*k > Integer.MAX_VALUE - 8){
+            throw new IllegalStateException("Too many odd nodes for " + k + " candidates each: " + nbOdd);
+        }
+        OddShortestPaths.Search search = new OddShortestPaths.Search(graph);
+        int[] rank = new int[graph.nbNodes()];
+        Arrays.fill(rank, -1);
+        int[] all = new int[nbOdd];
+        for(int r = 0; r < nbOdd; ++r){
+            rank[odd[r]] = r;
+            all[r] = r;
+        }
+        int[] near = new int[nbOdd*k];
+        int[] nearDistance = new int[nbOdd*k];
+        int[] nbNear = new int[nbOdd];
+        nearest(search, odd, rank, all, all, k, near, nearDistance, nbNear);
+        lowerBound = lowerBound(k, near, nearDistance, nbNear);
+
+        int[] mates = new int[nbOdd];
+        int[] mateDistance = new int[nbOdd];
+        Arrays.fill(mates, -1);
+        greedyMatching(all, k, near, nearDistance, nbNear, mates, mateDistance);
+        int[] memberOf = new int[nbOdd];
+        for(int left = unmatched(mates); left > 0; left = unmatched(mates)){
+            int[] members = new int[left];
+            Arrays.fill(memberOf, -1);
+            for(int r = 0, i = 0; r < nbOdd; ++r){
+                if(mates[r] == -1){
+                    memberOf[r] = i;
+                    members[i++] = r;
+                }
+            }
+            int kk = Math.min(candidates, left-1);
+            int[] leftNear = new int[left*kk];
+            int[] leftDistance = new int[left*kk];
+            int[] nbLeftNear = new int[left];
+            nearest(search, odd, rank, members, memberOf, kk, leftNear, leftDistance, nbLeftNear);
+            greedyMatching(members, kk, leftNear, leftDistance, nbLeftNear, mates, mateDistance);
+        }
+        improveMatching(k, near, nearDistance, nbNear, mates, mateDistance);
+
+        if(nbOdd <= exactMatchingLimit && cost(mates, mateDistance) - lowerBound > gapThreshold){
+            int[][] distances = OddShortestPaths.oddDistances(search, odd);
+            long[][] cost = new long[nbOdd][nbOdd];
+            for(int a = 0; a < nbOdd; ++a){
+                for(int b = 0; b < nbOdd; ++b){
+                    cost[a][b] = distances[a][b];
+                }
+            }
+            mates = ExactMatching.improve(cost, mates);
+            for(int a = 0; a < nbOdd; ++a){
+                mateDistance[a] = distances[a][mates[a]];
+            }
+        }
+
+        boolean weighted = graph.isWeighted();
+        for(int a = 0; a < nbOdd; ++a){
+            int b = mates[a];
+            if(b < a){
+                continue;
+            }
+            extraCost += mateDistance[a];
+            search.start(odd[b]);
+            for(int u = search.settle(); u != odd[a] && u != -1; u = search.settle()){
+            }
+            for(int v = odd[a]; v != odd[b]; v = search.next(v)){
+                int u = search.next(v);
+                addExtra(v, u, weighted ? search.distance(v) - search.distance(u) : DotParser.NO_WEIGHT);
+            }
+        }
+    }
+
+    /**
+     * The function `nearest` runs a search from some of the odd nodes, the members, until it has
+     * settled `k` other members, and keeps them with their distance by increasing distance.
+     *
+     * @param members int[] the ranks of the members
+     * @param memberOf int[] the index of each odd node among the members, -1 if it is not one
+     * @param near int[] filled with the ranks of the candidates of the `i`th member from `i*k`
+     * @param nbNear int[] filled with the number of candidates of each member
+     */
+    private static void nearest(OddShortestPaths.Search search, int[] odd, int[] rank, int[] members, int[] memberOf,
+                                int k, int[] near, int[] nearDistance, int[] nbNear){
+        for(int i = 0; i < members.length; ++i){
+            search.start(odd[members[i]]);
+            int found = 0;
+            while(found < k){
+                int u = search.settle();
+                if(u == -1){
+                    break;
+                }
+                int r = rank[u];
+                if(r != -1 && r != members[i] && memberOf[r] != -1){
+                    near[i*k + found] = r;
+                    nearDistance[i*k + found] = search.distance(u);
+                    found++;
+                }
+            }
+            nbNear[i] = found;
+        }
+    }
+
+    private static int unmatched(int[] mates){
+        int count = 0;
+        for(int mate : mates){
+            if(mate == -1){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long cost(int[] mates, int[] mateDistance){
+        long cost = 0;
+        for(int a = 0; a < mates.length; ++a){
+            if(a < mates[a]){
+                cost += mateDistance[a];
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * The function `walk` hands the steps of the circuit starting and ending at the given node to
+     * the handler, see `RouteExporter.walk`.
+     *
+     * @param startId int
+     * @param handler RouteExporter.StepHandler
+     * @return long the number of steps
+     * @throws IOException if the handler fails
+     */
+    public long walk(int startId, RouteExporter.StepHandler handler) throws IOException {
+        solve();
+        int[][] edges = edges();
+        return RouteExporter.walk(nodeIds(), edges[0], edges[1], startId, handler);
+    }
+
+    /**
+     * The function `export` writes the circuit starting and ending at the given node to a file, in
+     * the format given by its extension, see `RouteExporter.export`.
+     *
+     * @param startId int
+     * @param path Path
+     * @return long the number of steps
+     * @throws IOException if the file cannot be written
+     */
+    public long export(int startId, Path path) throws IOException {
+        solve();
+        int[][] edges = edges();
+        return RouteExporter.export(nodeIds(), edges[0], edges[1], edges[2], startId, path, RouteExporter.Format.of(path));
+    }
+
+    private void addExtra(int from, int to, int weight){
+        if(nbExtra == extraFrom.length){
+            int size = Math.max(16, 2*nbExtra);
+            extraFrom = Arrays.copyOf(extraFrom, size);
+            extraTo = Arrays.copyOf(extraTo, size);
+            extraWeight = Arrays.copyOf(extraWeight, size);
+        }
+        extraFrom[nbExtra] = from;
+        extraTo[nbExtra] = to;
+        extraWeight[nbExtra++] = weight;
+    }
+
+    private int[] nodeIds(){
+        int[] ids = new int[graph.nbNodes()];
+        for(int i = 0; i < ids.length; ++i){
+            ids[i] = graph.nodeId(i);
+        }
+        return ids;
+    }
+
+    /**
+     * The function `edges` lists the ends and the weight of every edge, those of the graph by their
+     * number then the duplicated ones.
+     *
+     * @return int[][] the first ends, the second ends and the weights
+     */
+    private int[][] edges(){
+        int m = graph.nbEdges();
+        int[] from = new int[m+nbExtra];
+        int[] to = new int[m+nbExtra];
+        int[] weight = new int[m+nbExtra];
+        for(int u = 0; u < graph.nbNodes(); ++u){
+            for(int a = graph.offset(u), end = graph.offset(u+1); a < end; ++a){
+                if(graph.isPrimary(u, a)){
+                    int e = graph.edge(a);
+                    from[e] = u;
+                    to[e] = graph.target(a);
+                    weight[e] = graph.weight(a);
+                }
+            }
+        }
+        System.arraycopy(extraFrom, 0, from, m, nbExtra);
+        System.arraycopy(extraTo, 0, to, m, nbExtra);
+        System.arraycopy(extraWeight, 0, weight, m, nbExtra);
+        return new int[][]{from, to, weight};
+    }
+
+    /**
+     * The function `greedyMatching` pairs the members like `ChinesePostman.lengthPairwiseMatchingGreedy`,
+     * among their candidates only: the closest two free members are paired first. Sorting all the
+     * candidates once gives the same matching as looking for the closest pair again after each
+     * choice. A member whose candidates are all taken is left unmatched.
+     */
+    private static void greedyMatching(int[] members, int k, int[] near, int[] nearDistance, int[] nbNear,
+                                       int[] mates, int[] mateDistance){
+        int count = 0;
+        for(int i = 0; i < members.length; ++i){
+            count += nbNear[i];
+        }
+        long[] pairs = new long[count];
+        count = 0;
+        for(int i = 0; i < members.length; ++i){
+            for(int c = 0; c < nbNear[i]; ++c){
+                pairs[count++] = ((long) nearDistance[i*k + c] << 32) | (i*k + c);
+            }
+        }
+        Arrays.sort(pairs);
+        for(long pair : pairs){
+            int index = (int) pair;
+            int a = members[index / k];
+            int b = near[index];
+            if(mates[a] != -1 || mates[b] != -1){
+                continue;
+            }
+            mates[a] = b;
+            mates[b] = a;
+            mateDistance[a] = nearDistance[index];
+            mateDistance[b] = nearDistance[index];
+        }
+    }
+
+    /**
+     * The function `improveMatching` swaps two pairs (a, b) and (c, d) for (a, c) and (b, d) while it
+     * lowers the cost, c being a candidate of a and the distance between b and d being known from
+     * the candidates of one of them.
+     */
+    private static void improveMatching(int k, int[] near, int[] nearDistance, int[] nbNear, int[] mates, int[] mateDistance){
+        boolean improved = true;
+        while(improved){
+            improved = false;
+            for(int a = 0; a < mates.length; ++a){
+                for(int c = 0; c < nbNear[a]; ++c){
+                    int b = mates[a];
+                    int x = near[a*k + c];
+                    int d = mates[x];
+                    if(x == b){
+                        continue;
+                    }
+                    long bd = distance(k, near, nearDistance, nbNear, b, d);
+                    if(bd == -1 || nearDistance[a*k + c] + bd >= (long) mateDistance[a] + mateDistance[x]){
+                        continue;
+                    }
+                    mates[a] = x;
+                    mates[x] = a;
+                    mateDistance[a] = nearDistance[a*k + c];
+                    mateDistance[x] = nearDistance[a*k + c];
+                    mates[b] = d;
+                    mates[d] = b;
+                    mateDistance[b] = (int) bd;
+                    mateDistance[d] = (int) bd;
+                    improved = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * The function `distance` returns the distance between two odd nodes if one is a candidate of
+     * the other, -1 otherwise.
+     */
+    private static long distance(int k, int[] near, int[] nearDistance, int[] nbNear, int a, int b){
+        for(int c = 0; c < nbNear[a]; ++c){
+            if(near[a*k + c] == b){
+                return nearDistance[a*k + c];
+            }
+        }
+        for(int c = 0; c < nbNear[b]; ++c){
+            if(near[b*k + c] == a){
+                return nearDistance[b*k + c];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The function `lowerBound` bounds the cost of a perfect matching from below like
+     * `ChinesePostman.extraCostLowerBound`, with a feasible dual solution. Each node only looks at
+     * its candidates, every other odd node being at least as far as its last candidate and having
+     * no larger a dual value than the largest one.
+     *
+     * @return int
+     */
+    private static int lowerBound(int k, int[] near, int[] nearDistance, int[] nbNear){
+        int size = nbNear.length;
+        if(size < 2){
+            return 0;
+        }
+        long[] dual = new long[size];
+        long maxDual = 0;
+        for(int i = 0; i < size; ++i){
+            dual[i] = nearDistance[i*k];
+            maxDual = Math.max(maxDual, dual[i]);
+        }
+        for(int i = 0; i < size; ++i){
+            long slack = Long.MAX_VALUE;
+            if(nbNear[i] < size-1){
+                slack = 2L*nearDistance[i*k + nbNear[i]-1] - dual[i] - maxDual;
+            }
+            for(int c = 0; c < nbNear[i]; ++c){
+                slack = Math.min(slack, 2L*nearDistance[i*k + c] - dual[i] - dual[near[i*k + c]]);
+            }
+            dual[i] += Math.max(0, slack);
+            maxDual = Math.max(maxDual, dual[i]);
+        }
+        long sum = 0;
+        for(long value : dual){
+            sum += value;
+        }
+        return (int) ((sum + 1) / 2);
+    }
+}
@@ -0,0 +1,282 @@
+import m1graphs2024.Edge;
+import m1graphs2024.Graph;
+import m1graphs2024.Node;
+
+import java.util.*;
+
+/**
+ * The class `DirectedChinesePostman` solves the Chinese postman problem on a directed `Graph`.
+ * The imbalance between in-degree and out-degree of every node is resolved with a min-cost flow,
+ * the edges carrying flow are duplicated in red, and an Euler circuit is walked over the
+ * augmented multigraph. Unweighted edges cost 1.
+ */
+public class DirectedChinesePostman {
+
+    private String type = "";
+    private long extraCost = 0;
+    private List<Node> walkedCircuit = new ArrayList<>();
+    private List<Edge> walkedEdges = new ArrayList<>();
+
+    Graph graph;
+
+    public DirectedChinesePostman(Graph graph){
+        this.graph = graph;
+    }
+
+    /**
+     * The function `getExtraCost` returns the cost of the edges duplicated by the last solve.
+     *
+     * @return long
+     */
+    public long getExtraCost(){
+        return extraCost;
+    }
+
+    /**
+     * The function `findEulerianWay` checks that the graph is strongly connected and returns an
+     * Euler circuit of the graph, augmented with duplicated edges if it is not Eulerian.
+     *
+     * @return List<Node>, empty if the graph is not strongly connected
+     */
+    public List<Node> findEulerianWay(){
+        List<Node> nodes = graph.getAllNodes();
+        Map<Node, Integer> index = new HashMap<>();
+        for(int i = 0; i < nodes.size(); ++i){
+            index.put(nodes.get(i), i);
+        }
+        List<Edge> edges = graph.getAllEdges();
+        int[] from = new int[edges.size()];
+        int[] to = new int[edges.size()];
+        int[] balance = new int[nodes.size()];
+        for(int i = 0; i < edges.size(); ++i){
+            from[i] = index.get(edges.get(i).from());
+            to[i] = index.get(edges.get(i).to());
+            balance[to[i]]++;
+            balance[from[i]]--;
+        }
+        if(!isStronglyConnected(nodes.size(), from, to)){
+            type = "Non strongly connected graph";
+            return new ArrayList<>();
+        }
+        extraCost = 0;
+        type = "Eulerian";
+        for(int b : balance){
+            if(b != 0){
+                type = "Non Eulerian";
+                augment(nodes, edges, from, to, balance);
+                break;
+            }
+        }
+        return eulerianCircuit();
+    }
+
+    /**
+     * The function `isEulerian` checks if every node has the same in-degree and out-degree.
+     *
+     * @return boolean
+     */
+    public boolean isEulerian(){
+        Map<Node, Integer> balance = new HashMap<>();
+        for(Edge e : graph.getAllEdges()){
+            balance.merge(e.to(), 1, Integer::sum);
+            balance.merge(e.from(), -1, Integer::sum);
+        }
+        return balance.values().stream().allMatch(b -> b == 0);
+    }
+
+    /**
+     * The function `augment` resolves the node imbalances with a min-cost flow from the nodes
+     * missing outgoing edges to the nodes missing incoming edges, then duplicates every edge
+     * as many times as it carries flow.
+     */
+    private void augment(List<Node> nodes, List<Edge> edges, int[] from, int[] to, int[] balance){
+        int source = nodes.size();
+        int sink = source + 1;
+        MinCostFlow network = new MinCostFlow(nodes.size() + 2, edges.size() + nodes.size());
+        int[] arcs = new int[edges.size()];
+        for(int i = 0; i < edges.size(); ++i){
+            arcs[i] = network.addArc(from[i], to[i], MinCostFlow.INFINITE_CAPACITY, weight(edges.get(i)));
+        }
+        int demand = 0;
+        for(int v = 0; v < balance.length; ++v){
+            if(balance[v] > 0){
+                network.addArc(source, v, balance[v], 0);
+                demand += balance[v];
+            }else if(balance[v] < 0){
+                network.addArc(v, sink, -balance[v], 0);
+            }
+        }
+        long[] result = network.solve(source, sink, demand);
+        for(int i = 0; i < edges.size(); ++i){
+            Edge e = edges.get(i);
+            for(int k = network.flow(arcs[i]); k > 0; --k){
+                graph.addEdge(e.from().getId(), e.to().getId(), weight(e), "red");
+            }
+        }
+        extraCost = result[1];
+    }
+
+    /**
+     * The function `eulerianCircuit` walks an Euler circuit of the (balanced) graph with the
+     * iterative version of Hierholzer's algorithm, starting from the smallest node having edges.
+     * The edges it walks, parallel ones included, are kept for `createLabel`.
+     *
+     * @return List<Node>
+     */
+    public List<Node> eulerianCircuit(){
+        List<Node> nodes = graph.getAllNodes();
+        Map<Node, Integer> index = new HashMap<>();
+        for(int i = 0; i < nodes.size(); ++i){
+            index.put(nodes.get(i), i);
+        }
+        List<Edge> edges = graph.getAllEdges();
+        int[] offset = new int[nodes.size() + 1];
+        for(Edge e : edges){
+            offset[index.get(e.from()) + 1]++;
+        }
+        for(int v = 0; v < nodes.size(); ++v){
+            offset[v+1] += offset[v];
+        }
+        int[] position = Arrays.copyOf(offset, nodes.size());
+        int[] targets = new int[edges.size()];
+        int[] arcEdge = new int[edges.size()];
+        for(int i = 0; i < edges.size(); ++i){
+            int arc = position[index.get(edges.get(i).from())]++;
+            targets[arc] = index.get(edges.get(i).to());
+            arcEdge[arc] = i;
+        }
+        List<Node> circuit = new ArrayList<>();
+        List<Edge> walked = new ArrayList<>();
+        if(edges.isEmpty()){
+            walkedCircuit = new ArrayList<>();
+            walkedEdges = walked;
+            return circuit;
+        }
+        int[] cursor = Arrays.copyOf(offset, nodes.size());
+        int[] stack = new int[edges.size() + 1];
+        int[] via = new int[edges.size() + 1];
+        int top = 0;
+        stack[top] = index.get(edges.get(0).from());
+        via[top++] = -1;
+        while(top > 0){
+            int u = stack[top-1];
+            if(cursor[u] < offset[u+1]){
+                int arc = cursor[u]++;
+                stack[top] = targets[arc];
+                via[top++] = arcEdge[arc];
+            }else{
+                circuit.add(nodes.get(u));
+                if(via[top-1] != -1){
+                    walked.add(edges.get(via[top-1]));
+                }
+                top--;
+            }
+        }
+        Collections.reverse(circuit);
+        Collections.reverse(walked);
+        walkedCircuit = new ArrayList<>(circuit);
+        walkedEdges = walked;
+        return circuit;
+    }
+
+    /**
+     * The function `createLabel` generates a label for the circuit given. For the circuit last
+     * walked by `eulerianCircuit`, every step is the edge it walked, so that parallel edges of
+     * different weights are each listed and charged once; for another circuit, every step is the
+     * cheapest edge between the two nodes.
+     *
+     * @param circuit List<Node>
+     * @return String
+     */
+    public String createLabel(List<Node> circuit){
+        StringBuilder label = new StringBuilder("Type: Directed "+type+"\n\t");
+        label.append("Directed Chinese Circuit: [");
+        long totalCost = 0;
+        List<Edge> steps = circuit.equals(walkedCircuit) ? walkedEdges : cheapestEdges(circuit);
+        for(Edge e : steps){
+            label.append(e.toCircuitString()).append(", ");
+            totalCost += weight(e);
+        }
+        if(!steps.isEmpty()){
+            label.setLength(label.length()-2);
+        }
+        label.append("]\n\tTotal Cost: ").append(totalCost);
+        label.append("\n\tExtra Cost: ").append(extraCost);
+        return label.toString();
+    }
+
+    /**
+     * The function createLabel() returns a label based on the directed Chinese circuit.
+     *
+     * @return String
+     */
+    public String createLabel(){
+        return createLabel(findEulerianWay());
+    }
+
+    private List<Edge> cheapestEdges(List<Node> circuit){
+        List<Edge> steps = new ArrayList<>();
+        for(int i = 0; i < circuit.size()-1; ++i){
+            Edge best = null;
+            for(Edge e : graph.getEdges(circuit.get(i), circuit.get(i+1))){
+                if(best == null || weight(e) < weight(best)){
+                    best = e;
+                }
+            }
+            steps.add(best);
+        }
+        return steps;
+    }
+
+    private static int weight(Edge e){
+        return e.isWeighted() ? e.getWeight() : 1;
+    }
+
+    /**
+     * The function `isStronglyConnected` checks that every node having edges can be reached from,
+     * and can reach, the first node having edges.
+     */
+    private static boolean isStronglyConnected(int nbNodes, int[] from, int[] to){
+        if(from.length == 0){
+            return true;
+        }
+        boolean[] forward = reach(nbNodes, from, to, from[0]);
+        boolean[] backward = reach(nbNodes, to, from, from[0]);
+        for(int i = 0; i < from.length; ++i){
+            if(!forward[from[i]] || !backward[from[i]] || !forward[to[i]] || !backward[to[i]]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean[] reach(int nbNodes, int[] from, int[] to, int root){
+        int[] offset = new int[nbNodes + 1];
+        for(int u : from){
+            offset[u+1]++;
+        }
+        for(int v = 0; v < nbNodes; ++v){
+            offset[v+1] += offset[v];
+        }
+        int[] position = Arrays.copyOf(offset, nbNodes);
+        int[] targets = new int[from.length];
+        for(int i = 0; i < from.length; ++i){
+            targets[position[from[i]]++] = to[i];
+        }
+        boolean[] visited = new boolean[nbNodes];
+        int[] queue = new int[nbNodes];
+        int head = 0, tail = 0;
+        visited[root] = true;
+        queue[tail++] = root;
+        while(head < tail){
+            int u = queue[head++];
+            for(int k = offset[u]; k < offset[u+1]; ++k){
+                if(!visited[targets[k]]){
+                    visited[targets[k]] = true;
+                    queue[tail++] = targets[k];
+                }
+            }
+        }
+        return visited;
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The class `ExactMatching` finds a perfect matching of least cost between an even number of nodes
+ * by branch and bound. The smallest unmatched node is paired with every other one, nearest first,
+ * and a branch is cut as soon as its cost plus half the cost of each unmatched node to its nearest
+ * neighbour reaches the best matching found, the search starting from a matching already known.
+ * Like `ChinesePostman.lengthPairwiseMatching`, it takes a time exponential in the number of nodes
+ * in the worst case, which is why the solvers only run it when a cheaper matching is not within the
+ * gap threshold of the lower bound.
+ */
+public class ExactMatching {
+
+    private final long[][] cost;
+    private final long[] nearest;
+    private final Integer[][] order;
+    private final int[] mate;
+    private final int[] best;
+    private long bestCost;
+
+    private ExactMatching(long[][] cost, int[] start){
+        int size = cost.length;
+        this.cost = cost;
+        this.nearest = new long[size];
+        this.order = new Integer[size][];
+        this.mate = new int[size];
+        this.best = start.clone();
+        for(int i = 0; i < size; ++i){
+            nearest[i] = Long.MAX_VALUE;
+            for(int j = 0; j < size; ++j){
+                if(i != j){
+                    nearest[i] = Math.min(nearest[i], cost[i][j]);
+                }
+            }
+            final long[] row = cost[i];
+            order[i] = new Integer[size];
+            for(int j = 0; j < size; ++j){
+                order[i][j] = j;
+            }
+            Arrays.sort(order[i], Comparator.comparingLong(j -> row[j]));
+        }
+        for(int i = 0; i < size; ++i){
+            if(i < start[i]){
+                bestCost += cost[i][start[i]];
+            }
+        }
+        Arrays.fill(mate, -1);
+    }
+
+    /**
+     * The function `improve` returns a perfect matching of least cost.
+     *
+     * @param cost long[][] the cost of pairing two nodes, symmetric and of even size
+     * @param start int[] a perfect matching, the mate of each node
+     * @return int[] the mate of each node, the matching `start` if none is cheaper
+     */
+    public static int[] improve(long[][] cost, int[] start){
+        ExactMatching matching = new ExactMatching(cost, start);
+        long remaining = 0;
+        for(long value : matching.nearest){
+            remaining += value;
+        }
+        matching.search(0, remaining);
+        return matching.best;
+    }
+
+    private void search(long current, long remaining){
+        int i = 0;
+        while(i < mate.length && mate[i] != -1){
+            ++i;
+        }
+        if(i == mate.length){
+            if(current < bestCost){
+                bestCost = current;
+                System.arraycopy(mate, 0, best, 0, mate.length);
+            }
+            return;
+        }
+        for(int j : order[i]){
+            if(j == i || mate[j] != -1){
+                continue;
+            }
+            long rest = remaining - nearest[i] - nearest[j];
+            if(2*(current + cost[i][j]) + rest >= 2*bestCost){
+                continue;
+            }
+            mate[i] = j;
+            mate[j] = i;
+            search(current + cost[i][j], rest);
+            mate[i] = -1;
+            mate[j] = -1;
+        }
+    }
+}
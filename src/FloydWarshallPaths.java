@@ -0,0 +1,55 @@
+import m1graphs2024.Node;
+
+import java.util.Map;
+
+/**
+ * The class `FloydWarshallPaths` looks the shortest paths up in the matrix built by
+ * `ChinesePostman.floydWarshall`, whose entries give the distance between two nodes and either the
+ * second node, when the lightest edge between them is a shortest path, or an intermediate node.
+ */
+public class FloydWarshallPaths implements ShortestPaths {
+
+    private final Map<Pair<Node, Node>, Pair<Integer, Node>> floyd_warshall;
+
+    public FloydWarshallPaths(Map<Pair<Node, Node>, Pair<Integer, Node>> floyd_warshall){
+        this.floyd_warshall = floyd_warshall;
+    }
+
+    @Override
+    public int distance(Node from, Node to){
+        return floyd_warshall.get(new Pair<>(from, to)).getFirst();
+    }
+
+    /**
+     * The function `nextHop` follows the intermediate nodes from `to` back toward `from` until it
+     * finds one joined to `from` directly.
+     *
+     * @param from Node
+     * @param to Node
+     * @return Node
+     */
+    @Override
+    public Node nextHop(Node from, Node to){
+        if(from.equals(to)){
+            return to;
+        }
+        Node next = floyd_warshall.get(new Pair<>(from, to)).getSecond();
+        if(next == null){
+            return null;
+        }
+        Node hop = floyd_warshall.get(new Pair<>(from, next)).getSecond();
+        while(!hop.equals(floyd_warshall.get(new Pair<>(from, hop)).getSecond())){
+            hop = floyd_warshall.get(new Pair<>(from, hop)).getSecond();
+        }
+        return hop;
+    }
+
+    /**
+     * The function `getMatrix` returns the matrix the paths are looked up in.
+     *
+     * @return Map<Pair<Node, Node>, Pair<Integer, Node>>
+     */
+    public Map<Pair<Node, Node>, Pair<Integer, Node>> getMatrix(){
+        return floyd_warshall;
+    }
+}
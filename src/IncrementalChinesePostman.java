@@ -0,0 +1,894 @@
+import m1graphs2024.Edge;
+import m1graphs2024.Node;
+import m1graphs2024.UndirectedGraph;
+
+import java.util.*;
+
+/**
+ * The class `IncrementalChinesePostman` keeps a Chinese postman solution up to date while edges
+ * are added, removed or reweighted in batches.
+ * <p>
+ * The graph is read once into arrays. A shortest path tree is kept for every odd node; after a
+ * change only the trees using the changed edge are repaired (a decrease is propagated from the
+ * improved endpoint, an increase or a removal only recomputes the subtree hanging below the edge)
+ * and new odd nodes get a fresh Dijkstra. The matching is warm-started from the previous one:
+ * pairs whose nodes are still odd are kept, the new odd nodes are paired greedily, then pairs are
+ * swapped two by two while it lowers the cost. The result is an approximation, which
+ * `getLowerBound` bounds from below. An exact search, `ExactMatching`, exponential in the number of
+ * odd nodes, is only run if it was enabled by `setExactMatchingLimit`, there are few enough odd
+ * nodes, the matching is not within the gap threshold of the lower bound, and the distances between
+ * the odd nodes changed since it last ran. When the duplicated edges only grow, the new closed tours
+ * are spliced into the previous circuit; otherwise the circuit is walked again.
+ * </p>
+ * <p>
+ * The changes are also applied to the graph, each edge being stored from both of its nodes like
+ * `UndirectedGraph.addEdge` does; the duplicated edges are not added to it. A reweighted edge keeps
+ * its colour, and only the edges the solver stored for it are removed from the graph, never an equal
+ * parallel edge. Unweighted edges cost 1.
+ * </p>
+ */
+public class IncrementalChinesePostman {
+
+    private static final long INFINITY = Long.MAX_VALUE;
+
+    /**
+     * The class `EdgeChange` describes one change of a batch given to `update`.
+     */
+    public static class EdgeChange {
+        private final int fromId;
+        private final int toId;
+        private final int weight;
+        private final char kind;
+
+        private EdgeChange(char kind, int fromId, int toId, int weight){
+            this.kind = kind;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.weight = weight;
+        }
+
+        /**
+         * The function `setWeight` changes the weight of the edge between two nodes.
+         */
+        public static EdgeChange setWeight(int fromId, int toId, int weight){
+            return new EdgeChange('w', fromId, toId, weight);
+        }
+
+        /**
+         * The function `add` adds an edge between two nodes, creating them if needed.
+         */
+        public static EdgeChange add(int fromId, int toId, int weight){
+            return new EdgeChange('a', fromId, toId, weight);
+        }
+
+        /**
+         * The function `remove` removes the edge between two nodes.
+         */
+        public static EdgeChange remove(int fromId, int toId){
+            return new EdgeChange('r', fromId, toId, 0);
+        }
+
+        @Override
+        public String toString(){
+            return kind + "(" + fromId + ", " + toId + (kind == 'r' ? "" : ", " + weight) + ")";
+        }
+    }
+
+    private final UndirectedGraph graph;
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<Integer, Integer> indexOf = new HashMap<>();
+    private final List<List<Integer>> incident = new ArrayList<>();
+    private int[] degree = new int[0];
+
+    private int nbEdges = 0;
+    private int[] edgeFrom = new int[16];
+    private int[] edgeTo = new int[16];
+    private int[] edgeWeight = new int[16];
+    private boolean[] alive = new boolean[16];
+    private int[] duplicates = new int[16];
+    private Edge[] stored = new Edge[16];
+    private Edge[] storedBack = new Edge[16];
+
+    private final Map<Integer, long[]> distances = new HashMap<>();
+    private final Map<Integer, int[]> parents = new HashMap<>();
+    private final Map<Integer, Integer> mates = new HashMap<>();
+
+    private final List<Integer> circuitNodes = new ArrayList<>();
+    private final List<Integer> circuitEdges = new ArrayList<>();
+    private boolean lastUpdateSpliced = false;
+    private boolean solved = false;
+    private long lowerBound = 0;
+    private long gapThreshold = 0;
+    private int exactMatchingLimit = 0;
+    private List<Integer> exactOdd = null;
+    private long[][] exactCost = null;
+
+    public IncrementalChinesePostman(UndirectedGraph graph){
+        this.graph = graph;
+        for(Node n : graph.getAllNodes()){
+            indexOf(n.getId());
+        }
+        List<Edge> edges = graph.getAllEdges();
+        Set<Edge> listed = Collections.newSetFromMap(new IdentityHashMap<>());
+        listed.addAll(edges);
+        for(Edge e : edges){
+            int index = insertEdge(indexOf(e.from().getId()), indexOf(e.to().getId()), e.isWeighted() ? e.getWeight() : 1);
+            stored[index] = e;
+            storedBack[index] = symmetricCopy(e, listed);
+            if(storedBack[index] != null){
+                listed.add(storedBack[index]);
+            }
+        }
+    }
+
+    /**
+     * The function `symmetricCopy` finds the copy of edge `e` stored from its target by
+     * `UndirectedGraph.addEdge`, among the edges not claimed yet; a graph read from a file stores
+     * each edge once and has none.
+     */
+    private Edge symmetricCopy(Edge e, Set<Edge> claimed){
+        Edge symmetric = e.getSymmetric();
+        for(Edge x : graph.getAdjEgList().get(e.to())){
+            if(!claimed.contains(x) && x.equals(symmetric)){
+                return x;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The function `setExactMatchingLimit` enables the exact matching while the graph has at most
+     * the given number of odd nodes: when the warm-started matching is more than the gap threshold
+     * above the lower bound, `ExactMatching` replaces it with the best one, in a time exponential in
+     * the number of odd nodes. It is 0, disabled, by default.
+     *
+     * @param maxOddNodes int
+     */
+    public void setExactMatchingLimit(int maxOddNodes){
+        this.exactMatchingLimit = maxOddNodes;
+    }
+
+    /**
+     * The function `setGapThreshold` sets the gap between the warm-started matching and the lower
+     * bound under which the exact matching, when enabled, is not run.
+     *
+     * @param gapThreshold long
+     */
+    public void setGapThreshold(long gapThreshold){
+        this.gapThreshold = gapThreshold;
+    }
+
+    /**
+     * The function `getLowerBound` returns the lower bound on the extra cost computed by the last
+     * solve or update.
+     *
+     * @return long
+     */
+    public long getLowerBound(){
+        return lowerBound;
+    }
+
+    /**
+     * The function `solve` computes the shortest path trees of all odd nodes, a matching and a
+     * circuit from scratch.
+     *
+     * @return List<Node>
+     * @throws IllegalStateException if the edges do not form a single connected component
+     */
+    public List<Node> solve(){
+        distances.clear();
+        parents.clear();
+        mates.clear();
+        exactOdd = null;
+        checkConnected();
+        for(int v : oddNodes()){
+            computeTree(v);
+        }
+        improveMatching();
+        Arrays.fill(duplicates, 0);
+        computeDuplicates(duplicates);
+        buildCircuit(circuitStart());
+        lastUpdateSpliced = false;
+        solved = true;
+        return getCircuit();
+    }
+
+    /**
+     * The function `update` applies a batch of changes and repairs the previous solution.
+     *
+     * @param changes List<EdgeChange>
+     * @return List<Node> the new circuit
+     * @throws IllegalStateException if the edges no longer form a single connected component; the
+     * changes stay applied and the next update solves from scratch
+     */
+    public List<Node> update(List<EdgeChange> changes){
+        if(!solved){
+            apply(changes);
+            return solve();
+        }
+        boolean[] aliveBefore = Arrays.copyOf(alive, nbEdges);
+        apply(changes);
+        solved = false;
+        checkConnected();
+        solved = true;
+        Set<Integer> odd = new HashSet<>(oddNodes());
+        distances.keySet().removeIf(v -> !odd.contains(v));
+        parents.keySet().removeIf(v -> !odd.contains(v));
+        for(int v : odd){
+            if(!distances.containsKey(v)){
+                computeTree(v);
+            }
+        }
+        mates.entrySet().removeIf(m -> !odd.contains(m.getKey()) || !odd.contains(m.getValue()));
+        improveMatching();
+
+        int[] previous = Arrays.copyOf(duplicates, nbEdges);
+        int[] next = new int[duplicates.length];
+        computeDuplicates(next);
+        duplicates = next;
+        lastUpdateSpliced = splice(previous, aliveBefore);
+        if(!lastUpdateSpliced){
+            buildCircuit(circuitStart());
+        }
+        return getCircuit();
+    }
+
+    /**
+     * The function `getCircuit` returns the current circuit as a list of nodes.
+     *
+     * @return List<Node>
+     */
+    public List<Node> getCircuit(){
+        List<Node> circuit = new ArrayList<>(circuitNodes.size());
+        for(int v : circuitNodes){
+            circuit.add(nodes.get(v));
+        }
+        return circuit;
+    }
+
+    /**
+     * The function `getExtraCost` returns the cost of the duplicated edges.
+     *
+     * @return long
+     */
+    public long getExtraCost(){
+        long cost = 0;
+        for(int e = 0; e < nbEdges; ++e){
+            if(alive[e]){
+                cost += (long) duplicates[e]*edgeWeight[e];
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * The function `getTotalCost` returns the cost of every edge walked by the circuit.
+     *
+     * @return long
+     */
+    public long getTotalCost(){
+        long cost = 0;
+        for(int e = 0; e < nbEdges; ++e){
+            if(alive[e]){
+                cost += (long) (1 + duplicates[e])*edgeWeight[e];
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * The function `wasSpliced` tells if the last update re-spliced the previous circuit instead
+     * of walking a new one.
+     *
+     * @return boolean
+     */
+    public boolean wasSpliced(){
+        return lastUpdateSpliced;
+    }
+
+    // Changes and shortest path trees
+
+    private void apply(List<EdgeChange> changes){
+        for(EdgeChange change : changes){
+            int u = indexOf(change.fromId);
+            int v = indexOf(change.toId);
+            switch(change.kind){
+                case 'a': {
+                    int e = insertEdge(u, v, change.weight);
+                    store(e);
+                    for(int s : distances.keySet()){
+                        repairDecrease(s, e);
+                    }
+                    break;
+                }
+                case 'w': {
+                    int e = findEdge(u, v);
+                    if(e == -1){
+                        throw new IllegalArgumentException("No edge " + change.fromId + " -- " + change.toId);
+                    }
+                    int old = edgeWeight[e];
+                    edgeWeight[e] = change.weight;
+                    if(change.weight != old){
+                        unstore(e);
+                        store(e);
+                    }
+                    for(int s : distances.keySet()){
+                        if(change.weight < old){
+                            repairDecrease(s, e);
+                        }else if(change.weight > old){
+                            repairIncrease(s, e);
+                        }
+                    }
+                    break;
+                }
+                case 'r': {
+                    int e = findEdge(u, v);
+                    if(e == -1){
+                        throw new IllegalArgumentException("No edge " + change.fromId + " -- " + change.toId);
+                    }
+                    alive[e] = false;
+                    unstore(e);
+                    incident.get(u).remove(Integer.valueOf(e));
+                    if(u != v){
+                        incident.get(v).remove(Integer.valueOf(e));
+                        degree[u]--;
+                        degree[v]--;
+                    }
+                    for(int s : distances.keySet()){
+                        repairIncrease(s, e);
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unexpected value: " + change.kind);
+            }
+        }
+    }
+
+    private void computeTree(int source){
+        long[] dist = new long[nodes.size()];
+        int[] parent = new int[nodes.size()];
+        Arrays.fill(dist, INFINITY);
+        Arrays.fill(parent, -1);
+        dist[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong(a -> a[0]));
+        queue.add(new long[]{0, source});
+        propagate(dist, parent, queue);
+        distances.put(source, dist);
+        parents.put(source, parent);
+    }
+
+    private void repairDecrease(int source, int e){
+        long[] dist = distances.get(source);
+        int[] parent = parents.get(source);
+        PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong(a -> a[0]));
+        relax(dist, parent, queue, edgeFrom[e], e);
+        relax(dist, parent, queue, edgeTo[e], e);
+        propagate(dist, parent, queue);
+    }
+
+    private void repairIncrease(int source, int e){
+        long[] dist = distances.get(source);
+        int[] parent = parents.get(source);
+        int root;
+        if(parent[edgeTo[e]] == e){
+            root = edgeTo[e];
+        }else if(parent[edgeFrom[e]] == e){
+            root = edgeFrom[e];
+        }else{
+            return;
+        }
+        List<List<Integer>> children = new ArrayList<>();
+        for(int v = 0; v < nodes.size(); ++v){
+            children.add(new ArrayList<>());
+        }
+        for(int v = 0; v < nodes.size(); ++v){
+            if(parent[v] != -1){
+                children.get(other(parent[v], v)).add(v);
+            }
+        }
+        List<Integer> subtree = new ArrayList<>();
+        subtree.add(root);
+        for(int i = 0; i < subtree.size(); ++i){
+            subtree.addAll(children.get(subtree.get(i)));
+        }
+        for(int v : subtree){
+            dist[v] = INFINITY;
+            parent[v] = -1;
+        }
+        PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong(a -> a[0]));
+        for(int v : subtree){
+            for(int f : incident.get(v)){
+                relax(dist, parent, queue, other(f, v), f);
+            }
+        }
+        propagate(dist, parent, queue);
+    }
+
+    /**
+     * The function `relax` tries to reach the other end of edge `e` from node `u`.
+     */
+    private void relax(long[] dist, int[] parent, PriorityQueue<long[]> queue, int u, int e){
+        if(!alive[e] || dist[u] == INFINITY){
+            return;
+        }
+        int v = other(e, u);
+        if(dist[u] + edgeWeight[e] < dist[v]){
+            dist[v] = dist[u] + edgeWeight[e];
+            parent[v] = e;
+            queue.add(new long[]{dist[v], v});
+        }
+    }
+
+    private void propagate(long[] dist, int[] parent, PriorityQueue<long[]> queue){
+        while(!queue.isEmpty()){
+            long[] top = queue.poll();
+            int u = (int) top[1];
+            if(top[0] > dist[u]){
+                continue;
+            }
+            for(int e : incident.get(u)){
+                relax(dist, parent, queue, u, e);
+            }
+        }
+    }
+
+    // Matching
+
+    private long distance(int u, int v){
+        return distances.get(u)[v];
+    }
+
+    /**
+     * The function `improveMatching` completes the kept pairs greedily and swaps pairs while it
+     * lowers the cost, then searches for the best matching if it is enabled, the result is not
+     * within the gap threshold of the lower bound and the last search did not already find it.
+     */
+    private void improveMatching(){
+        List<Integer> unmatched = new ArrayList<>();
+        for(int v : distances.keySet()){
+            if(!mates.containsKey(v)){
+                unmatched.add(v);
+            }
+        }
+        Collections.sort(unmatched);
+        while(unmatched.size() > 1){
+            int u = unmatched.remove(0);
+            int best = 0;
+            for(int i = 1; i < unmatched.size(); ++i){
+                if(distance(u, unmatched.get(i)) < distance(u, unmatched.get(best))){
+                    best = i;
+                }
+            }
+            int v = unmatched.remove(best);
+            mates.put(u, v);
+            mates.put(v, u);
+        }
+        List<Integer> firsts = new ArrayList<>();
+        for(Map.Entry<Integer, Integer> m : mates.entrySet()){
+            if(m.getKey() < m.getValue()){
+                firsts.add(m.getKey());
+            }
+        }
+        Collections.sort(firsts);
+        boolean improved = true;
+        while(improved){
+            improved = false;
+            for(int i = 0; i < firsts.size(); ++i){
+                for(int j = i+1; j < firsts.size(); ++j){
+                    int a = firsts.get(i), b = mates.get(a);
+                    int c = firsts.get(j), d = mates.get(c);
+                    long current = cost(a, b) + cost(c, d);
+                    if(cost(a, c) + cost(b, d) < current){
+                        pair(a, c);
+                        pair(b, d);
+                        improved = true;
+                    }else if(cost(a, d) + cost(b, c) < current){
+                        pair(a, d);
+                        pair(b, c);
+                        improved = true;
+                    }else{
+                        continue;
+                    }
+                    firsts.set(i, Math.min(a, mates.get(a)));
+                    firsts.set(j, Math.min(b, mates.get(b)));
+                }
+            }
+        }
+        List<Integer> odd = new ArrayList<>(distances.keySet());
+        Collections.sort(odd);
+        lowerBound = lowerBound(odd);
+        if(odd.size() <= exactMatchingLimit && matchingCost() - lowerBound > gapThreshold && !sameAsExact(odd)){
+            exactMatching(odd);
+        }
+    }
+
+    /**
+     * The function `sameAsExact` tells if the odd nodes and their distances are those of the last
+     * exact search. The pairs it found are then all kept and none can be swapped, so the matching
+     * is still the best one.
+     */
+    private boolean sameAsExact(List<Integer> odd){
+        if(exactOdd == null || !exactOdd.equals(odd)){
+            return false;
+        }
+        for(int i = 0; i < odd.size(); ++i){
+            for(int j = 0; j < odd.size(); ++j){
+                if(exactCost[i][j] != cost(odd.get(i), odd.get(j))){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private long matchingCost(){
+        long total = 0;
+        for(Map.Entry<Integer, Integer> m : mates.entrySet()){
+            if(m.getKey() < m.getValue()){
+                total += cost(m.getKey(), m.getValue());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The function `lowerBound` computes the same lower bound on the cost of a perfect matching of
+     * the odd nodes as `ChinesePostman.extraCostLowerBound`: each node starts with half the distance
+     * to its nearest odd neighbour, then raises it as far as the slack of its constraints allows.
+     */
+    private long lowerBound(List<Integer> odd){
+        int size = odd.size();
+        if(size < 2){
+            return 0;
+        }
+        long[] dual = new long[size];
+        for(int i = 0; i < size; ++i){
+            dual[i] = INFINITY;
+            for(int j = 0; j < size; ++j){
+                if(i != j){
+                    dual[i] = Math.min(dual[i], cost(odd.get(i), odd.get(j)));
+                }
+            }
+        }
+        for(int i = 0; i < size; ++i){
+            long slack = INFINITY;
+            for(int j = 0; j < size; ++j){
+                if(i != j){
+                    slack = Math.min(slack, 2*cost(odd.get(i), odd.get(j)) - dual[i] - dual[j]);
+                }
+            }
+            dual[i] += slack;
+        }
+        long sum = 0;
+        for(long value : dual){
+            sum += value;
+        }
+        return (sum + 1) / 2;
+    }
+
+    /**
+     * The function `exactMatching` replaces the matching by a matching of least cost, found by
+     * `ExactMatching` from the current one.
+     */
+    private void exactMatching(List<Integer> odd){
+        int size = odd.size();
+        long[][] cost = new long[size][size];
+        int[] start = new int[size];
+        Map<Integer, Integer> rank = new HashMap<>();
+        for(int i = 0; i < size; ++i){
+            rank.put(odd.get(i), i);
+        }
+        for(int i = 0; i < size; ++i){
+            for(int j = 0; j < size; ++j){
+                cost[i][j] = cost(odd.get(i), odd.get(j));
+            }
+            start[i] = rank.get(mates.get(odd.get(i)));
+        }
+        int[] best = ExactMatching.improve(cost, start);
+        for(int i = 0; i < size; ++i){
+            mates.put(odd.get(i), odd.get(best[i]));
+        }
+        exactOdd = odd;
+        exactCost = cost;
+    }
+
+    private long cost(int u, int v){
+        long d = distance(u, v);
+        return d == INFINITY ? INFINITY / 4 : d;
+    }
+
+    private void pair(int u, int v){
+        mates.put(u, v);
+        mates.put(v, u);
+    }
+
+    private void computeDuplicates(int[] count){
+        for(Map.Entry<Integer, Integer> m : mates.entrySet()){
+            int source = m.getKey();
+            if(source > m.getValue()){
+                continue;
+            }
+            int[] parent = parents.get(source);
+            for(int v = m.getValue(); v != source; ){
+                int e = parent[v];
+                if(e == -1){
+                    throw new IllegalStateException("Non connect graph");
+                }
+                count[e]++;
+                v = other(e, v);
+            }
+        }
+    }
+
+    /**
+     * The function `checkConnected` throws when some edge cannot be reached from the start of the
+     * circuit, isolated nodes being ignored.
+     */
+    private void checkConnected(){
+        int start = circuitStart();
+        if(start == -1){
+            return;
+        }
+        boolean[] reached = new boolean[nodes.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        reached[start] = true;
+        queue.add(start);
+        while(!queue.isEmpty()){
+            int u = queue.poll();
+            for(int e : incident.get(u)){
+                int v = other(e, u);
+                if(!reached[v]){
+                    reached[v] = true;
+                    queue.add(v);
+                }
+            }
+        }
+        for(int v = 0; v < nodes.size(); ++v){
+            if(!reached[v] && !incident.get(v).isEmpty()){
+                throw new IllegalStateException("Non connect graph");
+            }
+        }
+    }
+
+    // Circuit
+
+    private int circuitStart(){
+        if(!circuitNodes.isEmpty() && !incident.get(circuitNodes.get(0)).isEmpty()){
+            return circuitNodes.get(0);
+        }
+        int start = -1;
+        for(int v = 0; v < nodes.size(); ++v){
+            if(!incident.get(v).isEmpty() && (start == -1 || nodes.get(v).getId() < nodes.get(start).getId())){
+                start = v;
+            }
+        }
+        return start;
+    }
+
+    private void buildCircuit(int start){
+        circuitNodes.clear();
+        circuitEdges.clear();
+        if(start == -1){
+            return;
+        }
+        int[] remaining = new int[nbEdges];
+        for(int e = 0; e < nbEdges; ++e){
+            remaining[e] = alive[e] ? 1 + duplicates[e] : 0;
+        }
+        int[] cursor = new int[nodes.size()];
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{start, -1});
+        while(!stack.isEmpty()){
+            int u = stack.peek()[0];
+            List<Integer> edges = incident.get(u);
+            while(cursor[u] < edges.size() && remaining[edges.get(cursor[u])] == 0){
+                cursor[u]++;
+            }
+            if(cursor[u] < edges.size()){
+                int e = edges.get(cursor[u]);
+                remaining[e]--;
+                stack.push(new int[]{other(e, u), e});
+            }else{
+                int[] top = stack.pop();
+                circuitNodes.add(top[0]);
+                if(top[1] != -1){
+                    circuitEdges.add(top[1]);
+                }
+            }
+        }
+        Collections.reverse(circuitNodes);
+        Collections.reverse(circuitEdges);
+    }
+
+    /**
+     * The function `splice` inserts into the circuit the closed tours formed by the edges that are
+     * walked more often than before. It gives up when some edge is walked less often.
+     */
+    private boolean splice(int[] previous, boolean[] aliveBefore){
+        if(circuitNodes.isEmpty()){
+            return false;
+        }
+        int[] added = new int[nbEdges];
+        int total = 0;
+        for(int e = 0; e < nbEdges; ++e){
+            int before = e < aliveBefore.length && aliveBefore[e] ? 1 + previous[e] : 0;
+            int after = alive[e] ? 1 + duplicates[e] : 0;
+            added[e] = after - before;
+            if(added[e] < 0){
+                return false;
+            }
+            total += added[e];
+        }
+        if(total == 0){
+            return true;
+        }
+        int[] cursor = new int[nodes.size()];
+        List<Integer> newNodes = new ArrayList<>();
+        List<Integer> newEdges = new ArrayList<>();
+        for(int i = 0; i < circuitNodes.size(); ++i){
+            int v = circuitNodes.get(i);
+            newNodes.add(v);
+            detour(v, added, cursor, newNodes, newEdges);
+            if(i < circuitEdges.size()){
+                newEdges.add(circuitEdges.get(i));
+            }
+        }
+        for(int e = 0; e < nbEdges; ++e){
+            if(added[e] != 0){
+                return false;
+            }
+        }
+        circuitNodes.clear();
+        circuitNodes.addAll(newNodes);
+        circuitEdges.clear();
+        circuitEdges.addAll(newEdges);
+        return true;
+    }
+
+    /**
+     * The function `detour` walks, from node v, every closed tour of added edges that can be
+     * started there, and recursively the tours met on the way.
+     */
+    private void detour(int v, int[] added, int[] cursor, List<Integer> newNodes, List<Integer> newEdges){
+        while(true){
+            int e = nextAdded(v, added, cursor);
+            if(e == -1){
+                return;
+            }
+            List<Integer> tourEdges = new ArrayList<>();
+            List<Integer> tourNodes = new ArrayList<>();
+            int u = v;
+            do{
+                added[e]--;
+                u = other(e, u);
+                tourEdges.add(e);
+                tourNodes.add(u);
+                e = u == v ? -1 : nextAdded(u, added, cursor);
+            }while(e != -1);
+            for(int i = 0; i < tourNodes.size(); ++i){
+                newEdges.add(tourEdges.get(i));
+                newNodes.add(tourNodes.get(i));
+                detour(tourNodes.get(i), added, cursor, newNodes, newEdges);
+            }
+        }
+    }
+
+    private int nextAdded(int v, int[] added, int[] cursor){
+        List<Integer> edges = incident.get(v);
+        while(cursor[v] < edges.size() && added[edges.get(cursor[v])] == 0){
+            cursor[v]++;
+        }
+        return cursor[v] < edges.size() ? edges.get(cursor[v]) : -1;
+    }
+
+    // Storage
+
+    private int indexOf(int id){
+        Integer index = indexOf.get(id);
+        if(index != null){
+            return index;
+        }
+        Node n = graph.getNode(id);
+        if(n == null){
+            n = new Node(graph, id);
+            graph.addNode(n);
+        }
+        nodes.add(n);
+        incident.add(new ArrayList<>());
+        degree = Arrays.copyOf(degree, nodes.size());
+        for(Map.Entry<Integer, long[]> entry : distances.entrySet()){
+            long[] dist = Arrays.copyOf(entry.getValue(), nodes.size());
+            dist[nodes.size()-1] = INFINITY;
+            entry.setValue(dist);
+            int[] parent = Arrays.copyOf(parents.get(entry.getKey()), nodes.size());
+            parent[nodes.size()-1] = -1;
+            parents.put(entry.getKey(), parent);
+        }
+        indexOf.put(id, nodes.size()-1);
+        return nodes.size()-1;
+    }
+
+    private int insertEdge(int u, int v, int weight){
+        if(nbEdges == edgeFrom.length){
+            int size = 2*nbEdges;
+            edgeFrom = Arrays.copyOf(edgeFrom, size);
+            edgeTo = Arrays.copyOf(edgeTo, size);
+            edgeWeight = Arrays.copyOf(edgeWeight, size);
+            alive = Arrays.copyOf(alive, size);
+            duplicates = Arrays.copyOf(duplicates, size);
+            stored = Arrays.copyOf(stored, size);
+            storedBack = Arrays.copyOf(storedBack, size);
+        }
+        int e = nbEdges++;
+        edgeFrom[e] = u;
+        edgeTo[e] = v;
+        edgeWeight[e] = weight;
+        alive[e] = true;
+        incident.get(u).add(e);
+        if(u != v){
+            incident.get(v).add(e);
+            degree[u]++;
+            degree[v]++;
+        }
+        return e;
+    }
+
+    /**
+     * The function `store` adds edge `e` to the graph, from both of its nodes, with the colour of
+     * the edge it replaces if any.
+     */
+    private void store(int e){
+        String color = stored[e] == null ? null : stored[e].getColor();
+        Node from = nodes.get(edgeFrom[e]);
+        Node to = nodes.get(edgeTo[e]);
+        stored[e] = new Edge(from, to, edgeWeight[e], color);
+        storedBack[e] = new Edge(to, from, edgeWeight[e], color);
+        graph.addEdge(stored[e]);
+        graph.addEdge(storedBack[e]);
+    }
+
+    /**
+     * The function `unstore` removes from the graph the edges stored for edge `e`, and only them:
+     * a parallel edge equal to one of them stays.
+     */
+    private void unstore(int e){
+        removeStored(stored[e]);
+        if(storedBack[e] != null){
+            removeStored(storedBack[e]);
+        }
+    }
+
+    private void removeStored(Edge edge){
+        Iterator<Edge> it = graph.getAdjEgList().get(edge.from()).iterator();
+        while(it.hasNext()){
+            if(it.next() == edge){
+                it.remove();
+                return;
+            }
+        }
+    }
+
+    private int findEdge(int u, int v){
+        for(int e : incident.get(u)){
+            if(other(e, u) == v){
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    private int other(int e, int v){
+        return edgeFrom[e] == v ? edgeTo[e] : edgeFrom[e];
+    }
+
+    private List<Integer> oddNodes(){
+        List<Integer> odd = new ArrayList<>();
+        for(int v = 0; v < nodes.size(); ++v){
+            if(degree[v] % 2 != 0){
+                odd.add(v);
+            }
+        }
+        return odd;
+    }
+}
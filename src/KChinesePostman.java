@@ -0,0 +1,223 @@
+import m1graphs2024.Edge;
+import m1graphs2024.Node;
+import m1graphs2024.UndirectedGraph;
+
+import java.util.*;
+
+/**
+ * The class `KChinesePostman` shares the edges of an undirected graph between k vehicles leaving
+ * from and returning to a depot. The edges are split into k connected regions grown around the
+ * depot, the lightest region always growing first, and the Chinese postman of every region is
+ * solved concurrently. Regions not touching the depot are reached through a shortest path walked
+ * there and back.
+ */
+public class KChinesePostman {
+
+    private final UndirectedGraph graph;
+    private final int depotId;
+    private final int k;
+    private List<PostmanRoute> routes = new ArrayList<>();
+
+    public KChinesePostman(UndirectedGraph graph, int depotId, int k){
+        if(k <= 0){
+            throw new IllegalArgumentException("The number of vehicles must be greater than 0.");
+        }
+        if(!graph.usesNode(depotId)){
+            throw new IllegalArgumentException("The depot " + depotId + " is not a node of the graph.");
+        }
+        this.graph = graph;
+        this.depotId = depotId;
+        this.k = k;
+    }
+
+    /**
+     * The function `solve` partitions the graph and solves every region in parallel.
+     *
+     * @return List<PostmanRoute> one route per vehicle having edges to serve
+     */
+    public List<PostmanRoute> solve(){
+        if(graph.isDisconnectedGraph()){
+            throw new IllegalStateException("Non connect graph");
+        }
+        List<UndirectedGraph> regions = partition();
+        routes = ChinesePostman.solveInParallel(regions, Collections.nCopies(regions.size(), depotId));
+        return routes;
+    }
+
+    /**
+     * The function `getMakespan` returns the cost of the longest route of the last solve.
+     *
+     * @return long
+     */
+    public long getMakespan(){
+        long makespan = 0;
+        for(PostmanRoute route : routes){
+            makespan = Math.max(makespan, route.getTotalCost());
+        }
+        return makespan;
+    }
+
+    /**
+     * The function `getRoutes` returns the routes of the last solve.
+     *
+     * @return List<PostmanRoute>
+     */
+    public List<PostmanRoute> getRoutes(){
+        return routes;
+    }
+
+    /**
+     * The function `partition` splits the edges of the graph into at most k connected regions.
+     * Every region starts from one of the k edges closest to the depot and, as long as edges are
+     * left, the region with the smallest load takes one more edge adjacent to it. The load of a
+     * region counts the deadheading from the depot to its seed and back.
+     *
+     * @return List<UndirectedGraph> one graph per region, each containing the depot
+     */
+    public List<UndirectedGraph> partition(){
+        List<Node> nodes = graph.getAllNodes();
+        Map<Node, Integer> index = new HashMap<>();
+        for(int i = 0; i < nodes.size(); ++i){
+            index.put(nodes.get(i), i);
+        }
+        List<Edge> edges = graph.getAllEdges();
+        int m = edges.size();
+        int[] from = new int[m];
+        int[] to = new int[m];
+        int[] weight = new int[m];
+        List<List<Integer>> incident = new ArrayList<>();
+        for(int i = 0; i < nodes.size(); ++i){
+            incident.add(new ArrayList<>());
+        }
+        for(int i = 0; i < m; ++i){
+            Edge e = edges.get(i);
+            from[i] = index.get(e.from());
+            to[i] = index.get(e.to());
+            weight[i] = e.isWeighted() ? e.getWeight() : 1;
+            incident.get(from[i]).add(i);
+            if(to[i] != from[i]){
+                incident.get(to[i]).add(i);
+            }
+        }
+        int depot = index.get(graph.getNode(depotId));
+        long[] distance = new long[nodes.size()];
+        int[] parentEdge = new int[nodes.size()];
+        dijkstra(depot, from, to, weight, incident, distance, parentEdge);
+
+        Integer[] order = new Integer[m];
+        for(int i = 0; i < m; ++i){
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> Math.min(distance[from[i]], distance[to[i]])));
+        int regions = Math.min(k, m);
+        int[] region = new int[m];
+        Arrays.fill(region, -1);
+        long[] load = new long[regions];
+        List<Deque<Integer>> frontier = new ArrayList<>();
+        for(int r = 0; r < regions; ++r){
+            int seed = order[r];
+            frontier.add(new ArrayDeque<>());
+            load[r] = 2*Math.min(distance[from[seed]], distance[to[seed]]);
+            take(seed, r, region, load, weight, from, to, incident, frontier);
+        }
+        int left = m - regions;
+        while(left > 0){
+            int r = -1;
+            for(int i = 0; i < regions; ++i){
+                if(!frontier.get(i).isEmpty() && (r == -1 || load[i] < load[r])){
+                    r = i;
+                }
+            }
+            if(r == -1){
+                break;
+            }
+            int e = frontier.get(r).poll();
+            if(region[e] == -1){
+                take(e, r, region, load, weight, from, to, incident, frontier);
+                left--;
+            }
+        }
+
+        List<UndirectedGraph> result = new ArrayList<>();
+        for(int r = 0; r < regions; ++r){
+            UndirectedGraph g = new UndirectedGraph(graph.getName() + "_" + (r+1));
+            int closest = -1;
+            for(int i = 0; i < m; ++i){
+                if(region[i] == r){
+                    addEdge(g, nodes.get(from[i]).getId(), nodes.get(to[i]).getId(), edges.get(i).getWeight(), edges.get(i).getColor());
+                    for(int v : new int[]{from[i], to[i]}){
+                        if(closest == -1 || distance[v] < distance[closest]){
+                            closest = v;
+                        }
+                    }
+                }
+            }
+            for(int v = closest; v != depot; ){
+                int e = parentEdge[v];
+                for(int twice = 0; twice < 2; ++twice){
+                    addEdge(g, nodes.get(from[e]).getId(), nodes.get(to[e]).getId(), edges.get(e).getWeight(), "red");
+                }
+                v = from[e] == v ? to[e] : from[e];
+            }
+            result.add(g);
+        }
+        return result;
+    }
+
+    /**
+     * The function `createLabel` describes the route of every vehicle and the makespan.
+     *
+     * @return String
+     */
+    public String createLabel(){
+        StringBuilder label = new StringBuilder();
+        for(int i = 0; i < routes.size(); ++i){
+            label.append("Vehicle ").append(i+1).append(": ").append(routes.get(i).getLabel()).append("\n");
+        }
+        label.append("Makespan: ").append(getMakespan());
+        return label.toString();
+    }
+
+    private static void take(int e, int r, int[] region, long[] load, int[] weight, int[] from, int[] to, List<List<Integer>> incident, List<Deque<Integer>> frontier){
+        region[e] = r;
+        load[r] += weight[e];
+        for(int v : new int[]{from[e], to[e]}){
+            for(int next : incident.get(v)){
+                if(region[next] == -1){
+                    frontier.get(r).add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * The function `addEdge` stores an edge from its smallest to its largest node, so parallel
+     * copies of an edge always land in the same adjacency list.
+     */
+    private static void addEdge(UndirectedGraph g, int u, int v, Integer weight, String color){
+        g.addEdge(new Edge(Math.min(u, v), Math.max(u, v), weight, g, color));
+    }
+
+    private static void dijkstra(int source, int[] from, int[] to, int[] weight, List<List<Integer>> incident, long[] distance, int[] parentEdge){
+        Arrays.fill(distance, Long.MAX_VALUE);
+        Arrays.fill(parentEdge, -1);
+        distance[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong(a -> a[0]));
+        queue.add(new long[]{0, source});
+        while(!queue.isEmpty()){
+            long[] top = queue.poll();
+            int u = (int) top[1];
+            if(top[0] > distance[u]){
+                continue;
+            }
+            for(int e : incident.get(u)){
+                int v = from[e] == u ? to[e] : from[e];
+                if(distance[u] + weight[e] < distance[v]){
+                    distance[v] = distance[u] + weight[e];
+                    parentEdge[v] = e;
+                    queue.add(new long[]{distance[v], v});
+                }
+            }
+        }
+    }
+}
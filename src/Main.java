@@ -24,7 +24,12 @@ public class Main {
                 boolean random = false;
                 System.out.println(g.toDotString());
                 if(g.isDisconnectedGraph()) {
-                    System.out.println("The graph is disconnected, it is impossible to compute the Chinese Circuit");
+                    System.out.println("The graph is disconnected, the Chinese Circuit is computed for each connected component");
+                    List<PostmanRoute> routes = c.findComponentWays();
+                    for(PostmanRoute route : routes){
+                        System.out.println(route.getLabel());
+                    }
+                    System.out.println("Total cost: " + ChinesePostman.totalCost(routes));
                     continue;
                 }
                 List<Node> findEulerianWay = new ArrayList<>();
@@ -0,0 +1,184 @@
+import java.util.Arrays;
+
+/**
+ * The class `MinCostFlow` is a min-cost flow engine on primitive arrays. Arcs are stored in a
+ * forward-star layout (each arc is followed by its residual twin) and flow is pushed along
+ * successive shortest paths found by Dijkstra on reduced costs, so the running time stays
+ * polynomial: O(F * E log V) where F is the number of augmentations.
+ * Arc costs must be non-negative.
+ */
+public class MinCostFlow {
+
+    public static final int INFINITE_CAPACITY = Integer.MAX_VALUE / 2;
+
+    private final int nbNodes;
+    private int nbArcs = 0;
+    private final int[] head;
+    private int[] next;
+    private int[] target;
+    private int[] capacity;
+    private long[] cost;
+
+    public MinCostFlow(int nbNodes, int expectedArcs){
+        this.nbNodes = nbNodes;
+        this.head = new int[nbNodes];
+        Arrays.fill(head, -1);
+        int size = Math.max(2, 2*expectedArcs);
+        this.next = new int[size];
+        this.target = new int[size];
+        this.capacity = new int[size];
+        this.cost = new long[size];
+    }
+
+    /**
+     * The function `addArc` adds an arc and its residual twin to the network.
+     *
+     * @param from int
+     * @param to int
+     * @param cap int
+     * @param arcCost long
+     * @return the index of the arc, to be used with `flow`
+     */
+    public int addArc(int from, int to, int cap, long arcCost){
+        if(arcCost < 0){
+            throw new IllegalArgumentException("Arc costs must be non-negative.");
+        }
+        if(nbArcs + 2 > target.length){
+            int size = 2*target.length;
+            next = Arrays.copyOf(next, size);
+            target = Arrays.copyOf(target, size);
+            capacity = Arrays.copyOf(capacity, size);
+            cost = Arrays.copyOf(cost, size);
+        }
+        int arc = nbArcs;
+        link(arc, from, to, cap, arcCost);
+        link(arc+1, to, from, 0, -arcCost);
+        nbArcs += 2;
+        return arc;
+    }
+
+    private void link(int arc, int from, int to, int cap, long arcCost){
+        target[arc] = to;
+        capacity[arc] = cap;
+        cost[arc] = arcCost;
+        next[arc] = head[from];
+        head[from] = arc;
+    }
+
+    /**
+     * The function `flow` returns the flow currently carried by an arc.
+     *
+     * @param arc int
+     * @return int
+     */
+    public int flow(int arc){
+        return capacity[arc^1];
+    }
+
+    /**
+     * The function `solve` pushes up to `maxFlow` units from `source` to `sink` at minimum cost.
+     *
+     * @param source int
+     * @param sink int
+     * @param maxFlow int
+     * @return an array containing the flow that was sent and its total cost
+     */
+    public long[] solve(int source, int sink, int maxFlow){
+        long[] potential = new long[nbNodes];
+        long[] distance = new long[nbNodes];
+        int[] parentArc = new int[nbNodes];
+        long[] heapKey = new long[Math.max(1, nbArcs + 1)];
+        int[] heapNode = new int[heapKey.length];
+        int flow = 0;
+        long totalCost = 0;
+        while(flow < maxFlow){
+            Arrays.fill(distance, Long.MAX_VALUE);
+            Arrays.fill(parentArc, -1);
+            distance[source] = 0;
+            int heapSize = 0;
+            heapKey[heapSize] = 0;
+            heapNode[heapSize++] = source;
+            while(heapSize > 0){
+                long d = heapKey[0];
+                int u = heapNode[0];
+                heapSize = pop(heapKey, heapNode, heapSize);
+                if(d > distance[u]){
+                    continue;
+                }
+                for(int arc = head[u]; arc != -1; arc = next[arc]){
+                    if(capacity[arc] == 0){
+                        continue;
+                    }
+                    int v = target[arc];
+                    long candidate = d + cost[arc] + potential[u] - potential[v];
+                    if(candidate < distance[v]){
+                        distance[v] = candidate;
+                        parentArc[v] = arc;
+                        if(heapSize == heapKey.length){
+                            heapKey = Arrays.copyOf(heapKey, 2*heapSize);
+                            heapNode = Arrays.copyOf(heapNode, 2*heapSize);
+                        }
+                        heapSize = push(heapKey, heapNode, heapSize, candidate, v);
+                    }
+                }
+            }
+            if(distance[sink] == Long.MAX_VALUE){
+                break;
+            }
+            for(int v = 0; v < nbNodes; ++v){
+                if(distance[v] != Long.MAX_VALUE){
+                    potential[v] += distance[v];
+                }
+            }
+            int push = maxFlow - flow;
+            for(int v = sink; v != source; v = target[parentArc[v]^1]){
+                push = Math.min(push, capacity[parentArc[v]]);
+            }
+            for(int v = sink; v != source; v = target[parentArc[v]^1]){
+                capacity[parentArc[v]] -= push;
+                capacity[parentArc[v]^1] += push;
+                totalCost += push*cost[parentArc[v]];
+            }
+            flow += push;
+        }
+        return new long[]{flow, totalCost};
+    }
+
+    private static int push(long[] key, int[] node, int size, long k, int n){
+        int i = size++;
+        while(i > 0){
+            int parent = (i-1)/2;
+            if(key[parent] <= k){
+                break;
+            }
+            key[i] = key[parent];
+            node[i] = node[parent];
+            i = parent;
+        }
+        key[i] = k;
+        node[i] = n;
+        return size;
+    }
+
+    private static int pop(long[] key, int[] node, int size){
+        size--;
+        long k = key[size];
+        int n = node[size];
+        int i = 0;
+        while(2*i+1 < size){
+            int child = 2*i+1;
+            if(child+1 < size && key[child+1] < key[child]){
+                child++;
+            }
+            if(key[child] >= k){
+                break;
+            }
+            key[i] = key[child];
+            node[i] = node[child];
+            i = child;
+        }
+        key[i] = k;
+        node[i] = n;
+        return size;
+    }
+}
@@ -0,0 +1,436 @@
+import m1graphs2024.CsrGraph;
+import m1graphs2024.DotParser;
+import m1graphs2024.Node;
+import m1graphs2024.UndirectedGraph;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The class `OddShortestPaths` holds the shortest paths toward the odd nodes of an undirected graph:
+ * for every odd node, the distance of each node to it and the next node on the way, that is a
+ * shortest path tree rooted at the odd node. It is all the Chinese postman needs to pair the odd
+ * nodes and to unfold the chosen paths, computed with one Dijkstra per odd node instead of
+ * Floyd-Warshall, and it can be saved to a file to be reused by `ShortestPathCache`. As
+ * `ShortestPaths`, it answers for the paths ending at an odd node once bound to the graph.
+ */
+public class OddShortestPaths implements ShortestPaths {
+
+    private static final int MAGIC = 0x43505053;
+    private static final int VERSION = 1;
+
+    private final int[] nodeIds;
+    private final int[] oddNodes;
+    private final int[][] distance;
+    private final int[][] next;
+    private List<Node> nodes;
+    private int[] rank;
+
+    private OddShortestPaths(int[] nodeIds, int[] oddNodes, int[][] distance, int[][] next){
+        this.nodeIds = nodeIds;
+        this.oddNodes = oddNodes;
+        this.distance = distance;
+        this.next = next;
+    }
+
+    /**
+     * The function `compute` runs a Dijkstra from every odd node of the graph, unweighted edges
+     * costing 1.
+     *
+     * @param graph UndirectedGraph
+     * @param oddNodes List<Node> the nodes toward which the paths are kept
+     * @return OddShortestPaths
+     */
+    public static OddShortestPaths compute(UndirectedGraph graph, List<Node> oddNodes){
+        CsrGraph csr = CsrGraph.of(graph);
+        int[] odd = new int[oddNodes.size()];
+        for(int k = 0; k < odd.length; ++k){
+            odd[k] = csr.indexOf(oddNodes.get(k).getId());
+        }
+        return compute(csr, odd).bind(graph);
+    }
+
+    /**
+     * The function `compute` runs a Dijkstra from every odd node of a snapshot, given by index.
+     * Every tree is kept whole, 8 bytes per node and per odd node on the heap: a `Search` gives
+     * what is needed to pair the odd nodes of a large graph without it.
+     *
+     * @param csr CsrGraph an undirected snapshot
+     * @param odd int[] the indexes of the nodes toward which the paths are kept
+     * @return OddShortestPaths
+     */
+    public static OddShortestPaths compute(CsrGraph csr, int[] odd){
+        int n = csr.nbNodes();
+        int[] nodeIds = new int[n];
+        for(int i = 0; i < n; ++i){
+            nodeIds[i] = csr.nodeId(i);
+        }
+        int[][] distance = new int[odd.length][];
+        int[][] next = new int[odd.length][];
+        Search search = new Search(csr);
+        for(int k = 0; k < odd.length; ++k){
+            search.start(odd[k]);
+            while(search.settle() != -1){
+            }
+            distance[k] = search.distance.clone();
+            next[k] = search.next.clone();
+        }
+        return new OddShortestPaths(nodeIds, odd.clone(), distance, next);
+    }
+
+    /**
+     * The function `oddDistances` returns the distances between the odd nodes of a snapshot only,
+     * running a Dijkstra from every odd node with the same search, so that the memory taken is that
+     * of the result and of the search.
+     *
+     * @param search Search a search on an undirected snapshot
+     * @param odd int[] the indexes of the odd nodes
+     * @return int[][] the distance from the `k`th odd node to the `l`th one at `[k][l]`,
+     * Integer.MAX_VALUE if it cannot be reached
+     */
+    public static int[][] oddDistances(Search search, int[] odd){
+        int[][] distances = new int[odd.length][odd.length];
+        for(int k = 0; k < odd.length; ++k){
+            search.start(odd[k]);
+            while(search.settle() != -1){
+            }
+            for(int l = 0; l < odd.length; ++l){
+                distances[k][l] = search.distance(odd[l]);
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * The function `distance` returns the length of a shortest path from a node to an odd node.
+     *
+     * @param k int the rank of the odd node
+     * @param i int the index of the node
+     * @return int the distance, Integer.MAX_VALUE if the node cannot reach the odd node
+     */
+    public int distance(int k, int i){
+        return distance[k][i];
+    }
+
+    /**
+     * The function `next` returns the node following a node on a shortest path to an odd node.
+     *
+     * @param k int the rank of the odd node
+     * @param i int the index of the node
+     * @return int the index of the next node, the odd node itself for the odd node, -1 if unreachable
+     */
+    public int next(int k, int i){
+        return next[k][i];
+    }
+
+    /**
+     * The class `Search` runs Dijkstra's algorithm on a snapshot one node at a time, unweighted
+     * edges costing 1, so that the caller stops as soon as it has what it needs. Its arrays are
+     * allocated once and reused from one search to the next, only the nodes reached by the previous
+     * search being reset.
+     */
+    public static final class Search {
+
+        private final CsrGraph csr;
+        private final int[] distance;
+        private final int[] next;
+        private final int[] heap;
+        private final int[] position;
+        private final int[] touched;
+        private int nbTouched = 0;
+        private int size = 0;
+
+        public Search(CsrGraph csr){
+            int n = csr.nbNodes();
+            this.csr = csr;
+            this.distance = new int[n];
+            this.next = new int[n];
+            this.heap = new int[n];
+            this.position = new int[n];
+            this.touched = new int[n];
+            Arrays.fill(distance, Integer.MAX_VALUE);
+            Arrays.fill(next, -1);
+            Arrays.fill(position, -1);
+        }
+
+        /**
+         * The function `start` starts a new search from a node.
+         *
+         * @param source int the index of the node
+         */
+        public void start(int source){
+            for(int i = 0; i < nbTouched; ++i){
+                int v = touched[i];
+                distance[v] = Integer.MAX_VALUE;
+                next[v] = -1;
+                position[v] = -1;
+            }
+            nbTouched = 0;
+            size = 0;
+            distance[source] = 0;
+            next[source] = source;
+            push(source);
+        }
+
+        /**
+         * The function `settle` takes the nearest node not settled yet, whose distance and next node
+         * are then final, and relaxes its edges.
+         *
+         * @return int the index of the node, -1 when every node that can be reached is settled
+         */
+        public int settle(){
+            if(size == 0){
+                return -1;
+            }
+            int u = heap[0];
+            position[u] = -2;
+            size--;
+            if(size > 0){
+                heap[0] = heap[size];
+                position[heap[0]] = 0;
+                siftDown(0);
+            }
+            for(int a = csr.offset(u), end = csr.offset(u+1); a < end; ++a){
+                int v = csr.target(a);
+                int w = csr.weight(a) == DotParser.NO_WEIGHT ? 1 : csr.weight(a);
+                if(position[v] == -2 || distance[u] + w >= distance[v]){
+                    continue;
+                }
+                distance[v] = distance[u] + w;
+                next[v] = u;
+                if(position[v] == -1){
+                    push(v);
+                }else{
+                    siftUp(position[v]);
+                }
+            }
+            return u;
+        }
+
+        /**
+         * The function `distance` returns the distance of a node to the source.
+         *
+         * @param i int the index of the node
+         * @return int the distance, final once the node is settled, Integer.MAX_VALUE if not reached
+         */
+        public int distance(int i){
+            return distance[i];
+        }
+
+        /**
+         * The function `next` returns the node following a node on its path to the source.
+         *
+         * @param i int the index of the node
+         * @return int the index of the next node, the source itself for the source, -1 if not reached
+         */
+        public int next(int i){
+            return next[i];
+        }
+
+        private void push(int v){
+            touched[nbTouched++] = v;
+            heap[size] = v;
+            position[v] = size++;
+            siftUp(position[v]);
+        }
+
+        private void siftUp(int i){
+            int v = heap[i];
+            while(i > 0){
+                int parent = (i-1)/2;
+                if(distance[heap[parent]] <= distance[v]){
+                    break;
+                }
+                heap[i] = heap[parent];
+                position[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+
+        private void siftDown(int i){
+            int v = heap[i];
+            while(2*i+1 < size){
+                int child = 2*i+1;
+                if(child+1 < size && distance[heap[child+1]] < distance[heap[child]]){
+                    child++;
+                }
+                if(distance[heap[child]] >= distance[v]){
+                    break;
+                }
+                heap[i] = heap[child];
+                position[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+    }
+
+    /**
+     * The function `matches` checks that the paths were computed on a graph having the given nodes
+     * and toward the given odd nodes.
+     *
+     * @param graph UndirectedGraph
+     * @param oddNodes List<Node>
+     * @return boolean
+     */
+    public boolean matches(UndirectedGraph graph, List<Node> oddNodes){
+        List<Node> nodes = graph.getAllNodes();
+        if(nodes.size() != nodeIds.length || oddNodes.size() != this.oddNodes.length){
+            return false;
+        }
+        for(int i = 0; i < nodeIds.length; ++i){
+            if(nodes.get(i).getId() != nodeIds[i]){
+                return false;
+            }
+        }
+        for(int k = 0; k < this.oddNodes.length; ++k){
+            if(oddNodes.get(k).getId() != nodeIds[this.oddNodes[k]]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The function `bind` gives the nodes of the graph the paths were computed on, so that they
+     * can be looked up by `Node`.
+     *
+     * @param graph UndirectedGraph a graph having the nodes of the paths
+     * @return OddShortestPaths this
+     * @throws IllegalArgumentException if the graph does not have the nodes of the paths
+     */
+    public OddShortestPaths bind(UndirectedGraph graph){
+        List<Node> nodes = graph.getAllNodes();
+        if(nodes.size() != nodeIds.length){
+            throw new IllegalArgumentException("The graph does not have the nodes of the paths.");
+        }
+        for(int i = 0; i < nodeIds.length; ++i){
+            if(nodes.get(i).getId() != nodeIds[i]){
+                throw new IllegalArgumentException("The graph does not have the nodes of the paths.");
+            }
+        }
+        int[] rank = new int[nodeIds.length];
+        Arrays.fill(rank, -1);
+        for(int k = 0; k < oddNodes.length; ++k){
+            rank[oddNodes[k]] = k;
+        }
+        this.rank = rank;
+        this.nodes = nodes;
+        return this;
+    }
+
+    /**
+     * The function `distance` returns the length of a shortest path ending at an odd node.
+     *
+     * @param from Node
+     * @param to Node an odd node
+     * @return int the distance, Integer.MAX_VALUE if `to` cannot be reached
+     * @throws IllegalArgumentException if `to` is not an odd node or `from` is not in the graph
+     */
+    @Override
+    public int distance(Node from, Node to){
+        return distance[oddRank(to)][index(from)];
+    }
+
+    /**
+     * The function `nextHop` returns the node following `from` on a shortest path to an odd node.
+     *
+     * @param from Node
+     * @param to Node an odd node
+     * @return Node `to` itself when `from` is `to`, null if `to` cannot be reached
+     * @throws IllegalArgumentException if `to` is not an odd node or `from` is not in the graph
+     */
+    @Override
+    public Node nextHop(Node from, Node to){
+        int hop = next[oddRank(to)][index(from)];
+        return hop == -1 ? null : nodes.get(hop);
+    }
+
+    private int index(Node node){
+        if(nodes == null){
+            throw new IllegalStateException("The paths are not bound to a graph.");
+        }
+        int i = Arrays.binarySearch(nodeIds, node.getId());
+        if(i < 0){
+            throw new IllegalArgumentException("No node " + node.getId() + " in the paths.");
+        }
+        return i;
+    }
+
+    private int oddRank(Node node){
+        int k = rank[index(node)];
+        if(k == -1){
+            throw new IllegalArgumentException("Only the paths to the odd nodes are kept, not to " + node.getId() + ".");
+        }
+        return k;
+    }
+
+    /**
+     * The function `write` saves the paths to a file.
+     *
+     * @param path Path
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nodeIds.length);
+            out.writeInt(oddNodes.length);
+            for(int id : nodeIds){
+                out.writeInt(id);
+            }
+            for(int k = 0; k < oddNodes.length; ++k){
+                out.writeInt(oddNodes[k]);
+                for(int d : distance[k]){
+                    out.writeInt(d);
+                }
+                for(int v : next[k]){
+                    out.writeInt(v);
+                }
+            }
+        }
+    }
+
+    /**
+     * The function `read` loads paths saved by `write`.
+     *
+     * @param path Path
+     * @return OddShortestPaths
+     * @throws IOException if the file cannot be read or was not written by `write`
+     */
+    public static OddShortestPaths read(Path path) throws IOException {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))){
+            if(in.readInt() != MAGIC || in.readInt() != VERSION){
+                throw new IOException("Not a shortest path file: " + path);
+            }
+            int n = in.readInt();
+            int k = in.readInt();
+            if(n < 0 || k < 0 || k > n){
+                throw new IOException("Corrupted shortest path file: " + path);
+            }
+            int[] nodeIds = new int[n];
+            for(int i = 0; i < n; ++i){
+                nodeIds[i] = in.readInt();
+            }
+            int[] odd = new int[k];
+            int[][] distance = new int[k][n];
+            int[][] next = new int[k][n];
+            for(int j = 0; j < k; ++j){
+                odd[j] = in.readInt();
+                for(int i = 0; i < n; ++i){
+                    distance[j][i] = in.readInt();
+                }
+                for(int i = 0; i < n; ++i){
+                    next[j][i] = in.readInt();
+                }
+            }
+            return new OddShortestPaths(nodeIds, odd, distance, next);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import m1graphs2024.Edge;
+import m1graphs2024.Node;
+import m1graphs2024.UndirectedGraph;
+
+import java.util.List;
+
+/**
+ * The class `PostmanRoute` holds the result of one Chinese postman solve: the graph that was
+ * solved (augmented with its red edges), the circuit found on it and what the circuit costs.
+ */
+public class PostmanRoute {
+    private final UndirectedGraph graph;
+    private final List<Node> circuit;
+    private final int extraCost;
+    private final int lowerBound;
+    private final String label;
+    private final long totalCost;
+
+    public PostmanRoute(UndirectedGraph graph, List<Node> circuit, int extraCost, int lowerBound, String label){
+        this.graph = graph;
+        this.circuit = circuit;
+        this.extraCost = extraCost;
+        this.lowerBound = lowerBound;
+        this.label = label;
+        long cost = 0;
+        for(Edge e : graph.getAllEdges()){
+            cost += e.isWeighted() ? e.getWeight() : 1;
+        }
+        this.totalCost = cost;
+    }
+
+    /**
+     * The function `getGraph` returns the solved graph, including the duplicated edges.
+     *
+     * @return UndirectedGraph
+     */
+    public UndirectedGraph getGraph(){
+        return graph;
+    }
+
+    /**
+     * The function `getCircuit` returns the circuit as a list of nodes.
+     *
+     * @return List<Node>
+     */
+    public List<Node> getCircuit(){
+        return circuit;
+    }
+
+    /**
+     * The function `getTotalCost` returns the cost of every edge walked by the circuit.
+     *
+     * @return long
+     */
+    public long getTotalCost(){
+        return totalCost;
+    }
+
+    /**
+     * The function `getExtraCost` returns the cost of the edges walked twice or more.
+     *
+     * @return int
+     */
+    public int getExtraCost(){
+        return extraCost;
+    }
+
+    /**
+     * The function `getLowerBound` returns the lower bound on the extra cost.
+     *
+     * @return int
+     */
+    public int getLowerBound(){
+        return lowerBound;
+    }
+
+    /**
+     * The function `getLabel` returns the label created by `ChinesePostman.createLabel`.
+     *
+     * @return String
+     */
+    public String getLabel(){
+        return label;
+    }
+
+    @Override
+    public String toString(){
+        return label;
+    }
+}
@@ -0,0 +1,462 @@
+import m1graphs2024.DotParser;
+import m1graphs2024.Edge;
+import m1graphs2024.GraphFiles;
+import m1graphs2024.Node;
+import m1graphs2024.UndirectedGraph;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The class `RouteExporter` writes the Eulerian circuit or trail of a graph to a file as it is
+ * found, step by step, without building the route as a list of nodes or as a label. A step is an
+ * edge walked from one node to the next; edges are identified by their index in
+ * `graph.getAllEdges()`. Two formats are supported:
+ * - CSV: a header then one `from,to,weight,edge` line per step, the weight being empty for an
+ *   unweighted edge, in the edge list format read by `UndirectedGraph.fromCsvFile`;
+ * - BINARY: a header holding the number of steps, the start node, then for each step the
+ *   differences with the previous node and the previous edge, zigzag and varint encoded.
+ * A file whose name ends with `.gz` is compressed with gzip.
+ */
+public class RouteExporter {
+
+    /**
+     * The enum `Format` lists the route file formats.
+     */
+    public enum Format {
+        CSV, BINARY;
+
+        /**
+         * The function `of` guesses the format of a file from its extension: `.csv` or `.csv.gz`
+         * for CSV, binary otherwise.
+         *
+         * @param path Path
+         * @return Format
+         */
+        public static Format of(Path path){
+            String name = path.getFileName().toString().toLowerCase();
+            return name.endsWith(".csv") || name.endsWith(".csv.gz") ? CSV : BINARY;
+        }
+    }
+
+    /**
+     * The interface `StepHandler` receives the steps of a route in order.
+     */
+    public interface StepHandler {
+        /**
+         * The function `start` is called once, before any step, with the first node of the route.
+         *
+         * @param node int the id of the node
+         * @throws IOException if the step cannot be handled
+         */
+        void start(int node) throws IOException;
+
+        /**
+         * The function `step` is called for each edge walked.
+         *
+         * @param from int the id of the node left
+         * @param to int the id of the node reached
+         * @param edge int the index of the edge in `graph.getAllEdges()`
+         * @throws IOException if the step cannot be handled
+         */
+        void step(int from, int to, int edge) throws IOException;
+    }
+
+    private static final int MAGIC = 0x524f5554;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private RouteExporter(){
+    }
+
+    /**
+     * The function `walk` finds an Eulerian circuit starting at the given node, or an Eulerian trail
+     * when the graph has two odd nodes, the given node being one of them, and hands its steps to the
+     * handler as they are found. Hierholzer's algorithm runs on arrays of edge indexes: a step is
+     * emitted each time a node leaves the stack, which gives the route backward; going backward
+     * along a circuit is a circuit from the same node, and a trail is started from its other end so
+     * that it comes out from the given node.
+     *
+     * @param graph UndirectedGraph
+     * @param startId int the id of the first node of the route
+     * @param handler StepHandler
+     * @return long the number of steps
+     * @throws IOException if the handler fails
+     */
+    public static long walk(UndirectedGraph graph, int startId, StepHandler handler) throws IOException {
+        List<Node> nodes = graph.getAllNodes();
+        List<Edge> edges = graph.getAllEdges();
+        int[] ids = ids(nodes);
+        return walk(ids, from(ids, edges), to(ids, edges), startId, handler);
+    }
+
+    /**
+     * The function `walk` finds the route on edges given as arrays of node indexes, as `walk` does
+     * on a graph, so that a graph kept outside of the heap can be walked without building any
+     * `Edge`.
+     *
+     * @param ids int[] the ids of the nodes, increasing
+     * @param from int[] the index of the first node of each edge
+     * @param to int[] the index of the second node of each edge
+     * @param startId int the id of the first node of the route
+     * @param handler StepHandler
+     * @return long the number of steps
+     * @throws IOException if the handler fails
+     */
+    static long walk(int[] ids, int[] from, int[] to, int startId, StepHandler handler) throws IOException {
+        int n = ids.length;
+        int m = from.length;
+        int start = Arrays.binarySearch(ids, startId);
+        if(start < 0){
+            throw new IllegalArgumentException("The node "+startId+" is not in the graph.");
+        }
+        int[] offsets = new int[n+1];
+        for(int e = 0; e < m; ++e){
+            offsets[from[e]+1]++;
+            offsets[to[e]+1]++;
+        }
+        int odd = -1;
+        int nbOdd = 0;
+        for(int v = 0; v < n; ++v){
+            if(offsets[v+1] % 2 != 0){
+                nbOdd++;
+                if(v != start){
+                    odd = v;
+                }
+            }
+            offsets[v+1] += offsets[v];
+        }
+        boolean startOdd = (offsets[start+1] - offsets[start]) % 2 != 0;
+        if(nbOdd > 2 || (nbOdd == 2 && !startOdd)){
+            throw new IllegalArgumentException("The graph has no Eulerian route from the node "+startId+".");
+        }
+        int[] incidences = new int[2*m];
+        int[] next = Arrays.copyOf(offsets, n);
+        for(int e = 0; e < m; ++e){
+            incidences[next[from[e]]++] = e;
+            incidences[next[to[e]]++] = e;
+        }
+        System.arraycopy(offsets, 0, next, 0, n);
+
+        boolean[] used = new boolean[m];
+        int[] nodeStack = new int[m+1];
+        int[] edgeStack = new int[m+1];
+        int size = 0;
+        nodeStack[size] = nbOdd == 2 ? odd : start;
+        edgeStack[size++] = -1;
+        long steps = 0;
+        int arriving = -1;
+        while(size > 0){
+            int v = nodeStack[size-1];
+            while(next[v] < offsets[v+1] && used[incidences[next[v]]]){
+                next[v]++;
+            }
+            if(next[v] < offsets[v+1]){
+                int e = incidences[next[v]++];
+                used[e] = true;
+                nodeStack[size] = from[e] == v ? to[e] : from[e];
+                edgeStack[size++] = e;
+                continue;
+            }
+            size--;
+            if(arriving == -1){
+                handler.start(ids[v]);
+            }else{
+                int previous = from[arriving] == v ? to[arriving] : from[arriving];
+                handler.step(ids[previous], ids[v], arriving);
+                steps++;
+            }
+            arriving = edgeStack[size];
+        }
+        if(steps != m){
+            throw new IllegalArgumentException("The graph has edges that cannot be reached from the node "+startId+".");
+        }
+        return steps;
+    }
+
+    /**
+     * The function `export` writes the route starting at the given node to a file, in the format
+     * given by its extension.
+     *
+     * @param graph UndirectedGraph
+     * @param startId int the id of the first node of the route
+     * @param path Path
+     * @return long the number of steps
+     * @throws IOException if the file cannot be written
+     */
+    public static long export(UndirectedGraph graph, int startId, Path path) throws IOException {
+        return export(graph, startId, path, Format.of(path));
+    }
+
+    /**
+     * The function `export` writes the route starting at the given node to a file.
+     *
+     * @param graph UndirectedGraph
+     * @param startId int the id of the first node of the route
+     * @param path Path
+     * @param format Format
+     * @return long the number of steps
+     * @throws IOException if the file cannot be written
+     */
+    public static long export(UndirectedGraph graph, int startId, Path path, Format format) throws IOException {
+        List<Edge> edges = graph.getAllEdges();
+        int[] ids = ids(graph.getAllNodes());
+        int[] weights = new int[edges.size()];
+        for(int e = 0; e < weights.length; ++e){
+            weights[e] = edges.get(e).isWeighted() ? edges.get(e).getWeight() : DotParser.NO_WEIGHT;
+        }
+        return export(ids, from(ids, edges), to(ids, edges), weights, startId, path, format);
+    }
+
+    /**
+     * The function `export` writes the route found on edges given as arrays of node indexes.
+     *
+     * @param ids int[] the ids of the nodes, increasing
+     * @param from int[] the index of the first node of each edge
+     * @param to int[] the index of the second node of each edge
+     * @param weights int[] the weight of each edge, `DotParser.NO_WEIGHT` if it has none
+     * @param startId int the id of the first node of the route
+     * @param path Path
+     * @param format Format
+     * @return long the number of steps
+     * @throws IOException if the file cannot be written
+     */
+    static long export(int[] ids, int[] from, int[] to, int[] weights, int startId, Path path, Format format) throws IOException {
+        try(WritableByteChannel channel = GraphFiles.openOutput(path)){
+            Output out = new Output(channel);
+            long steps;
+            if(format == Format.CSV){
+                out.ascii("from,to,weight,edge\n");
+                steps = walk(ids, from, to, startId, new StepHandler(){
+                    @Override
+                    public void start(int node){
+                    }
+
+                    @Override
+                    public void step(int from, int to, int edge) throws IOException {
+                        out.decimal(from).put(',').decimal(to).put(',');
+                        if(weights[edge] != DotParser.NO_WEIGHT){
+                            out.decimal(weights[edge]);
+                        }
+                        out.put(',').decimal(edge).put('\n');
+                    }
+                });
+            }else{
+                out.integer(MAGIC).integer(VERSION).integer(from.length);
+                steps = walk(ids, from, to, startId, new StepHandler(){
+                    private int node;
+                    private int edge;
+
+                    @Override
+                    public void start(int node) throws IOException {
+                        out.varint(zigzag(node));
+                        this.node = node;
+                    }
+
+                    @Override
+                    public void step(int from, int to, int edge) throws IOException {
+                        out.varint(zigzag(to-node)).varint(zigzag(edge-this.edge));
+                        this.node = to;
+                        this.edge = edge;
+                    }
+                });
+            }
+            out.flush();
+            return steps;
+        }
+    }
+
+    /**
+     * The function `read` decodes a route written in the binary format and hands its steps to the
+     * handler.
+     *
+     * @param path Path
+     * @param handler StepHandler
+     * @return long the number of steps
+     * @throws IOException if the file cannot be read or is not a binary route
+     */
+    public static long read(Path path, StepHandler handler) throws IOException {
+        try(ReadableByteChannel channel = GraphFiles.openInput(path)){
+            Input in = new Input(channel);
+            if(in.integer() != MAGIC || in.integer() != VERSION){
+                throw new IOException("Not a binary route file: " + path);
+            }
+            int steps = in.integer();
+            int node = unzigzag(in.varint());
+            int edge = 0;
+            handler.start(node);
+            for(int i = 0; i < steps; ++i){
+                int to = node + unzigzag(in.varint());
+                edge += unzigzag(in.varint());
+                handler.step(node, to, edge);
+                node = to;
+            }
+            return steps;
+        }
+    }
+
+    private static int[] ids(List<Node> nodes){
+        int[] ids = new int[nodes.size()];
+        for(int i = 0; i < ids.length; ++i){
+            ids[i] = nodes.get(i).getId();
+        }
+        return ids;
+    }
+
+    private static int[] from(int[] ids, List<Edge> edges){
+        int[] from = new int[edges.size()];
+        for(int e = 0; e < from.length; ++e){
+            from[e] = Arrays.binarySearch(ids, edges.get(e).from().getId());
+        }
+        return from;
+    }
+
+    private static int[] to(int[] ids, List<Edge> edges){
+        int[] to = new int[edges.size()];
+        for(int e = 0; e < to.length; ++e){
+            to[e] = Arrays.binarySearch(ids, edges.get(e).to().getId());
+        }
+        return to;
+    }
+
+    private static int zigzag(int value){
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value){
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * The class `Output` buffers the bytes written to a channel.
+     */
+    private static final class Output {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Output(WritableByteChannel channel){
+            this.channel = channel;
+        }
+
+        Output put(char c) throws IOException {
+            if(!buffer.hasRemaining()){
+                drain();
+            }
+            buffer.put((byte) c);
+            return this;
+        }
+
+        Output ascii(String s) throws IOException {
+            for(int i = 0; i < s.length(); ++i){
+                put(s.charAt(i));
+            }
+            return this;
+        }
+
+        Output integer(int value) throws IOException {
+            if(buffer.remaining() < 4){
+                drain();
+            }
+            buffer.putInt(value);
+            return this;
+        }
+
+        Output decimal(int value) throws IOException {
+            if(buffer.remaining() < 11){
+                drain();
+            }
+            if(value < 0){
+                buffer.put((byte) '-');
+            }
+            long abs = Math.abs((long) value);
+            int end = buffer.position();
+            for(long v = abs; v >= 10; v /= 10){
+                end++;
+            }
+            for(int i = end; i >= buffer.position(); --i){
+                buffer.put(i, (byte) ('0' + abs % 10));
+                abs /= 10;
+            }
+            buffer.position(end+1);
+            return this;
+        }
+
+        Output varint(int value) throws IOException {
+            if(buffer.remaining() < 5){
+                drain();
+            }
+            while((value & ~0x7f) != 0){
+                buffer.put((byte) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+            return this;
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while(buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * The class `Input` buffers the bytes read from a channel.
+     */
+    private static final class Input {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Input(ReadableByteChannel channel){
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        int integer() throws IOException {
+            int value = 0;
+            for(int i = 0; i < 4; ++i){
+                value = (value << 8) | (next() & 0xff);
+            }
+            return value;
+        }
+
+        int varint() throws IOException {
+            int value = 0;
+            for(int shift = 0; shift < 35; shift += 7){
+                byte b = next();
+                value |= (b & 0x7f) << shift;
+                if(b >= 0){
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in the route file");
+        }
+
+        private byte next() throws IOException {
+            if(!buffer.hasRemaining()){
+                buffer.clear();
+                int read;
+                do{
+                    read = channel.read(buffer);
+                }while(read == 0);
+                buffer.flip();
+                if(read == -1){
+                    throw new EOFException("Truncated route file");
+                }
+            }
+            return buffer.get();
+        }
+    }
+}
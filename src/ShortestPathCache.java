@@ -0,0 +1,180 @@
+import m1graphs2024.Edge;
+import m1graphs2024.Node;
+import m1graphs2024.UndirectedGraph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * The class `ShortestPathCache` keeps the `OddShortestPaths` of the graphs already solved in a local
+ * directory, one file per graph named after the hash of its edges. Solving again a graph with the
+ * same edges then skips the shortest path phase. Files are stamped on every use and the least
+ * recently used ones are deleted when the directory grows beyond its size limit.
+ */
+public class ShortestPathCache {
+
+    private static final String EXTENSION = ".sp";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * @param directory Path the cache directory, created if needed
+     * @param maxBytes long the size above which the least recently used files are deleted
+     */
+    public ShortestPathCache(Path directory, long maxBytes){
+        if(maxBytes <= 0){
+            throw new IllegalArgumentException("The size of the cache must be greater than 0.");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The function `hash` computes the SHA-256 hash of the canonical form of a graph: its sorted
+     * node ids, then its edges as (smallest id, largest id, weight) triples in increasing order.
+     * Two graphs with the same nodes and the same multiset of edges have the same hash, whatever
+     * the order and the direction their edges were stored in. Colours are ignored.
+     *
+     * @param graph UndirectedGraph
+     * @return String the hash in hexadecimal
+     */
+    public static String hash(UndirectedGraph graph){
+        List<Node> nodes = graph.getAllNodes();
+        List<Edge> edges = graph.getAllEdges();
+        long[][] triples = new long[edges.size()][];
+        for(int i = 0; i < triples.length; ++i){
+            Edge e = edges.get(i);
+            int u = e.from().getId();
+            int v = e.to().getId();
+            triples[i] = new long[]{Math.min(u, v), Math.max(u, v), e.isWeighted() ? e.getWeight() : Long.MIN_VALUE};
+        }
+        Arrays.sort(triples, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(a[2], b[2]));
+        MessageDigest digest;
+        try{
+            digest = MessageDigest.getInstance("SHA-256");
+        }catch(NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        buffer.putInt(nodes.size());
+        for(Node n : nodes){
+            update(digest, buffer, 4);
+            buffer.putInt(n.getId());
+        }
+        update(digest, buffer, 4);
+        buffer.putInt(triples.length);
+        for(long[] t : triples){
+            update(digest, buffer, 16);
+            buffer.putInt((int) t[0]).putInt((int) t[1]).putLong(t[2]);
+        }
+        update(digest, buffer, buffer.capacity());
+        StringBuilder hex = new StringBuilder();
+        for(byte b : digest.digest()){
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static void update(MessageDigest digest, ByteBuffer buffer, int needed){
+        if(buffer.remaining() < needed){
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * The function `shortestPaths` returns the shortest paths toward the odd nodes of a graph, read
+     * from the cache when the graph was already solved, computed and stored otherwise.
+     *
+     * @param graph UndirectedGraph
+     * @param oddNodes List<Node>
+     * @return OddShortestPaths
+     */
+    public OddShortestPaths shortestPaths(UndirectedGraph graph, List<Node> oddNodes){
+        Path file = directory.resolve(hash(graph) + EXTENSION);
+        if(Files.exists(file)){
+            try{
+                OddShortestPaths paths = OddShortestPaths.read(file);
+                if(paths.matches(graph, oddNodes)){
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                    return paths.bind(graph);
+                }
+            }catch(IOException e){
+                // unreadable entry, computed again below
+            }
+        }
+        OddShortestPaths paths = OddShortestPaths.compute(graph, oddNodes);
+        try{
+            store(file, paths);
+        }catch(IOException e){
+            throw new UncheckedIOException("Cannot write the shortest path cache " + directory, e);
+        }
+        return paths;
+    }
+
+    /**
+     * The function `store` writes an entry through a temporary file, so that a concurrent reader
+     * never sees it half written, then evicts the least recently used entries.
+     */
+    private void store(Path file, OddShortestPaths paths) throws IOException {
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "entry", ".tmp");
+        try{
+            paths.write(temporary);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }finally{
+            Files.deleteIfExists(temporary);
+        }
+        evict(file);
+    }
+
+    private void evict(Path keep) throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try(Stream<Path> files = Files.list(directory)){
+            files.filter(p -> p.getFileName().toString().endsWith(EXTENSION)).forEach(entries::add);
+        }
+        Map<Path, FileTime> used = new HashMap<>();
+        long total = 0;
+        for(Path p : entries){
+            used.put(p, Files.getLastModifiedTime(p));
+            total += Files.size(p);
+        }
+        entries.sort(Comparator.comparing(used::get));
+        for(Path p : entries){
+            if(total <= maxBytes){
+                break;
+            }
+            if(!p.equals(keep)){
+                total -= Files.size(p);
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    /**
+     * The function `clear` deletes every entry of the cache.
+     *
+     * @throws IOException if an entry cannot be deleted
+     */
+    public void clear() throws IOException {
+        if(!Files.isDirectory(directory)){
+            return;
+        }
+        try(Stream<Path> files = Files.list(directory)){
+            for(Path p : (Iterable<Path>) files::iterator){
+                if(p.getFileName().toString().endsWith(EXTENSION)){
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+    }
+}
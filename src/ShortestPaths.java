@@ -0,0 +1,28 @@
+import m1graphs2024.Node;
+
+/**
+ * The interface `ShortestPaths` is what the Chinese postman looks up once the shortest paths are
+ * computed: the length of a shortest path and the first node on it. `FloydWarshallPaths` answers
+ * for every pair of nodes, `OddShortestPaths` only for the paths ending at an odd node.
+ */
+public interface ShortestPaths {
+
+    /**
+     * The function `distance` returns the length of a shortest path between two nodes.
+     *
+     * @param from Node
+     * @param to Node
+     * @return int the distance, Integer.MAX_VALUE if `to` cannot be reached
+     */
+    int distance(Node from, Node to);
+
+    /**
+     * The function `nextHop` returns the node following `from` on a shortest path to `to`, which
+     * is joined to `from` by an edge.
+     *
+     * @param from Node
+     * @param to Node
+     * @return Node `to` itself when `from` is `to`, null if `to` cannot be reached
+     */
+    Node nextHop(Node from, Node to);
+}
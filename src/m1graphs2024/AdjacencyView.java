@@ -0,0 +1,160 @@
+package m1graphs2024;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * View of the adjacency lists of a {@link Graph}, handed out by {@link Graph#getAdjEgList()} and
+ * {@link Graph#getOutEdges(Node)}. Reads go straight to the lists of the graph; every write, to the
+ * map or to one of its lists, first tells the graph, which drops what it derived from its edges
+ * (the index of incoming edges, the union-find of the components) instead of keeping them stale.
+ * Reading through the view leaves them in place.
+ * @author Johan Barçon
+ */
+final class AdjacencyView extends AbstractMap<Node, List<Edge>> {
+    private final Map<Node, List<Edge>> adjacency;
+    private final Runnable changed;
+
+    /**
+     * Creates a view of adjacency lists.
+     * @param adjacency the lists of the graph
+     * @param changed the action run before each write
+     */
+    AdjacencyView(Map<Node, List<Edge>> adjacency, Runnable changed) {
+        this.adjacency = adjacency;
+        this.changed = changed;
+    }
+
+    /**
+     * Creates a view of one adjacency list.
+     * @param edges the list of the graph
+     * @param changed the action run before each write
+     * @return the view
+     */
+    static List<Edge> of(List<Edge> edges, Runnable changed) {
+        return new EdgeList(edges, changed);
+    }
+
+    @Override
+    public int size() {
+        return adjacency.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return adjacency.containsKey(key);
+    }
+
+    @Override
+    public List<Edge> get(Object key) {
+        List<Edge> edges = adjacency.get(key);
+        return edges == null ? null : new EdgeList(edges, changed);
+    }
+
+    @Override
+    public List<Edge> put(Node key, List<Edge> value) {
+        changed.run();
+        return adjacency.put(key, value);
+    }
+
+    @Override
+    public List<Edge> remove(Object key) {
+        if (!adjacency.containsKey(key)) return null;
+        changed.run();
+        return adjacency.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        changed.run();
+        adjacency.clear();
+    }
+
+    @Override
+    public Set<Entry<Node, List<Edge>>> entrySet() {
+        return new AbstractSet<Entry<Node, List<Edge>>>() {
+            @Override
+            public int size() {
+                return adjacency.size();
+            }
+
+            @Override
+            public Iterator<Entry<Node, List<Edge>>> iterator() {
+                Iterator<Entry<Node, List<Edge>>> entries = adjacency.entrySet().iterator();
+                return new Iterator<Entry<Node, List<Edge>>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Node, List<Edge>> next() {
+                        Entry<Node, List<Edge>> entry = entries.next();
+                        return new SimpleEntry<Node, List<Edge>>(entry.getKey(), new EdgeList(entry.getValue(), changed)) {
+                            private static final long serialVersionUID = 1L;
+
+                            @Override
+                            public List<Edge> setValue(List<Edge> value) {
+                                changed.run();
+                                return entry.setValue(value);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        changed.run();
+                        entries.remove();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * View of one adjacency list, telling the graph before each write.
+     */
+    private static final class EdgeList extends AbstractList<Edge> implements RandomAccess {
+        private final List<Edge> edges;
+        private final Runnable changed;
+
+        EdgeList(List<Edge> edges, Runnable changed) {
+            this.edges = edges;
+            this.changed = changed;
+        }
+
+        @Override
+        public Edge get(int index) {
+            return edges.get(index);
+        }
+
+        @Override
+        public int size() {
+            return edges.size();
+        }
+
+        @Override
+        public Edge set(int index, Edge e) {
+            changed.run();
+            return edges.set(index, e);
+        }
+
+        @Override
+        public void add(int index, Edge e) {
+            changed.run();
+            edges.add(index, e);
+        }
+
+        @Override
+        public Edge remove(int index) {
+            changed.run();
+            return edges.remove(index);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package m1graphs2024;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command line converter from the DOT files of the ressources directory to the binary format of
+ * {@link CsrGraph}. Each {@code name.gv} or {@code name.dot} file gives a {@code name.gbin} file
+ * next to it, which {@link Graph#fromBinaryFile(String)} loads.
+ * <p>Usage: {@code java m1graphs2024.BinaryConverter [name...]}, converting every DOT file of
+ * the directory when no name is given.</p>
+ * @author Johan Barçon
+ */
+public class BinaryConverter {
+    private static final Path RESSOURCES = Paths.get("./ressources");
+
+    private BinaryConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(RESSOURCES, "*.{gv,dot}")) {
+                for (Path file : files) convert(file);
+            }
+        } else {
+            for (String name : args) {
+                Path file = RESSOURCES.resolve(name + ".gv");
+                convert(Files.exists(file) ? file : RESSOURCES.resolve(name + ".dot"));
+            }
+        }
+    }
+
+    /**
+     * Converts a DOT file to a binary file with the same name and the .gbin extension.
+     * @param dot the path of the DOT file
+     * @return the path of the binary file
+     * @throws IOException if a file cannot be read or written
+     */
+    public static Path convert(Path dot) throws IOException {
+        String name = dot.getFileName().toString();
+        int extension = name.lastIndexOf('.');
+        Path binary = dot.resolveSibling((extension == -1 ? name : name.substring(0, extension)) + ".gbin");
+        CsrGraph graph = CsrGraph.convert(dot, binary);
+        System.out.println(dot + " -> " + binary + " (" + graph.nbNodes() + " nodes, " + graph.nbEdges() + " edges)");
+        return binary;
+    }
+}
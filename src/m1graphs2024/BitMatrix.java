@@ -0,0 +1,83 @@
+package m1graphs2024;
+
+/**
+ * Square boolean matrix packed 64 entries per {@code long}, a row taking {@link #stride()} words,
+ * the entry (i, j) being bit {@code j % 64} of word {@code i * stride() + j / 64}. It takes n²/8
+ * bytes for n rows, 32 times less than an {@code int[n][n]}, and suits dense graphs of a few
+ * tens of thousands of nodes.
+ * @author Johan Barçon
+ */
+public class BitMatrix {
+    private final int size;
+    private final int stride;
+    private final long[] words;
+
+    /**
+     * Creates a matrix with every entry false.
+     * @param size the number of rows and columns
+     * @throws IllegalArgumentException if the matrix cannot fit in a single array
+     */
+    public BitMatrix(int size) {
+        this.size = size;
+        this.stride = (size + 63) >>> 6;
+        long nbWords = (long) size * stride;
+        if (nbWords > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many nodes for a bit matrix: " + size);
+        }
+        this.words = new long[(int) nbWords];
+    }
+
+    /**
+     * Returns the number of rows, which is also the number of columns.
+     * @return the size of the matrix
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of words of a row.
+     * @return the stride of the matrix
+     */
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * Retrieves the words of the matrix, row after row. The array is that of the matrix, not a copy.
+     * @return the words of the matrix
+     */
+    public long[] words() {
+        return words;
+    }
+
+    /**
+     * Retrieves an entry.
+     * @param i the row
+     * @param j the column
+     * @return true if the entry is set
+     */
+    public boolean get(int i, int j) {
+        return (words[i * stride + (j >>> 6)] & (1L << j)) != 0;
+    }
+
+    /**
+     * Sets an entry to true.
+     * @param i the row
+     * @param j the column
+     */
+    public void set(int i, int j) {
+        words[i * stride + (j >>> 6)] |= 1L << j;
+    }
+
+    /**
+     * Counts the entries set in a row.
+     * @param i the row
+     * @return the number of columns set
+     */
+    public int rowCount(int i) {
+        int count = 0;
+        for (int w = i * stride, end = w + stride; w < end; w++) count += Long.bitCount(words[w]);
+        return count;
+    }
+}
@@ -0,0 +1,281 @@
+package m1graphs2024;
+
+import java.util.Arrays;
+
+/**
+ * Read-only adjacency of a graph in compressed form, for graphs too large to be kept as objects or
+ * even as a {@link CsrGraph}. Nodes are numbered from 0 in increasing id order, as in the snapshot
+ * the structure is built from, and the targets leaving each node, sorted, are gap-encoded as
+ * variable-length integers of 7 bits per byte: the first one relative to the node itself (zigzag
+ * encoded, as it can be smaller), each other one relative to the previous target. Neighbours being
+ * close in id in most road networks, a target then takes one or two bytes instead of four.
+ * <p>Weights are kept apart, each as its difference to the smallest weight in bytes or shorts when
+ * the range of the weights allows it, as ints otherwise. Colours are not kept. The arcs are read with a
+ * {@link Cursor}, which decodes them one after the other without allocating anything.</p>
+ * @author Johan Barçon
+ */
+public class CompressedAdjacency {
+    private final boolean directed;
+    private final int[] nodeIds;
+    private final int[] offsets;
+    private final int[] positions;
+    private final byte[] targets;
+    private final int minWeight;
+    private final byte[] byteWeights;
+    private final short[] shortWeights;
+    private final int[] intWeights;
+
+    private CompressedAdjacency(boolean directed, int[] nodeIds, int[] offsets, int[] positions, byte[] targets,
+                                int minWeight, byte[] byteWeights, short[] shortWeights, int[] intWeights) {
+        this.directed = directed;
+        this.nodeIds = nodeIds;
+        this.offsets = offsets;
+        this.positions = positions;
+        this.targets = targets;
+        this.minWeight = minWeight;
+        this.byteWeights = byteWeights;
+        this.shortWeights = shortWeights;
+        this.intWeights = intWeights;
+    }
+
+    /**
+     * Compresses the arcs of a snapshot, which are already grouped by source and sorted by target.
+     * @param graph the snapshot
+     * @return the compressed adjacency of the snapshot
+     * @throws IllegalArgumentException if the encoded targets do not fit in a single array
+     */
+    public static CompressedAdjacency of(CsrGraph graph) {
+        int n = graph.nbNodes();
+        int m = graph.nbArcs();
+        int[] nodeIds = new int[n];
+        int[] offsets = new int[n + 1];
+        int[] positions = new int[n + 1];
+        byte[] targets = new byte[Math.max(16, m + m / 2)];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            nodeIds[i] = graph.nodeId(i);
+            offsets[i] = graph.offset(i);
+            positions[i] = size;
+            int previous = i;
+            for (int a = graph.offset(i), end = graph.offset(i + 1); a < end; a++) {
+                int t = graph.target(a);
+                long gap = a == graph.offset(i) ? zigzag(t - previous) : t - previous;
+                if (targets.length - size < 5) {
+                    long length = Math.min(2L * targets.length, Integer.MAX_VALUE - 8);
+                    if (length - size < 5) throw new IllegalArgumentException("Too many arcs to compress: " + m);
+                    targets = Arrays.copyOf(targets, (int) length);
+                }
+                size = writeVarint(targets, size, gap);
+                previous = t;
+            }
+        }
+        offsets[n] = m;
+        positions[n] = size;
+        int minWeight = 0;
+        byte[] byteWeights = null;
+        short[] shortWeights = null;
+        int[] intWeights = null;
+        if (graph.isWeighted()) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int a = 0; a < m; a++) {
+                min = Math.min(min, graph.weight(a));
+                max = Math.max(max, graph.weight(a));
+            }
+            long range = m == 0 ? 0 : (long) max - min;
+            minWeight = m == 0 ? 0 : min;
+            if (range < 1 << 8) {
+                byteWeights = new byte[m];
+                for (int a = 0; a < m; a++) byteWeights[a] = (byte) (graph.weight(a) - min);
+            } else if (range < 1 << 16) {
+                shortWeights = new short[m];
+                for (int a = 0; a < m; a++) shortWeights[a] = (short) (graph.weight(a) - min);
+            } else {
+                intWeights = new int[m];
+                for (int a = 0; a < m; a++) intWeights[a] = graph.weight(a);
+            }
+        }
+        return new CompressedAdjacency(graph.isDirected(), nodeIds, offsets, positions, Arrays.copyOf(targets, size),
+                minWeight, byteWeights, shortWeights, intWeights);
+    }
+
+    /**
+     * Tells whether the adjacency was built from a directed graph.
+     * @return true for a directed graph
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Returns the number of nodes.
+     * @return the number of nodes
+     */
+    public int nbNodes() {
+        return nodeIds.length;
+    }
+
+    /**
+     * Returns the number of arcs, two per edge of an undirected graph.
+     * @return the number of arcs
+     */
+    public int nbArcs() {
+        return offsets[nodeIds.length];
+    }
+
+    /**
+     * Returns the id of a node.
+     * @param i the index of the node
+     * @return its id
+     */
+    public int nodeId(int i) {
+        return nodeIds[i];
+    }
+
+    /**
+     * Returns the index of a node.
+     * @param id the id of the node
+     * @return its index, or -1 if there is no such node
+     */
+    public int indexOf(int id) {
+        int i = Arrays.binarySearch(nodeIds, id);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * Returns the number of arcs leaving a node.
+     * @param i the index of the node
+     * @return the out-degree, or the degree for an undirected graph
+     */
+    public int degree(int i) {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /**
+     * Tells whether the arcs carry weights.
+     * @return true if at least one edge is weighted
+     */
+    public boolean isWeighted() {
+        return byteWeights != null || shortWeights != null || intWeights != null;
+    }
+
+    /**
+     * Returns the number of bytes taken by the arrays of the structure, to be compared with the
+     * 8 to 12 bytes per arc of a {@link CsrGraph}.
+     * @return the size of the data, headers of the arrays excluded
+     */
+    public long sizeInBytes() {
+        long size = 4L * nodeIds.length + 4L * offsets.length + 4L * positions.length + targets.length;
+        if (byteWeights != null) size += byteWeights.length;
+        if (shortWeights != null) size += 2L * shortWeights.length;
+        if (intWeights != null) size += 4L * intWeights.length;
+        return size;
+    }
+
+    /**
+     * Creates a cursor, to be placed on a node with {@link Cursor#reset(int)}. A cursor can be
+     * reused for any number of nodes; several cursors can read the structure at once.
+     * @return a new cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private static int writeVarint(byte[] bytes, int position, long value) {
+        while (value >= 0x80) {
+            bytes[position++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Cursor over the arcs leaving a node, decoded one at a time:
+     * <pre>
+     * CompressedAdjacency.Cursor c = adjacency.cursor().reset(i);
+     * while (c.next()) visit(c.target(), c.weight());
+     * </pre>
+     */
+    public final class Cursor {
+        private int arc;
+        private int end;
+        private int position;
+        private int target;
+        private boolean first;
+
+        private Cursor() {
+        }
+
+        /**
+         * Places the cursor before the first arc leaving a node.
+         * @param i the index of the node
+         * @return this cursor
+         */
+        public Cursor reset(int i) {
+            arc = offsets[i] - 1;
+            end = offsets[i + 1];
+            position = positions[i];
+            target = i;
+            first = true;
+            return this;
+        }
+
+        /**
+         * Moves to the next arc.
+         * @return false if there is no arc left
+         */
+        public boolean next() {
+            if (arc + 1 >= end) return false;
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = targets[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            arc++;
+            if (first) {
+                int zigzag = (int) value;
+                target += (zigzag >>> 1) ^ -(zigzag & 1);
+                first = false;
+            } else {
+                target += (int) value;
+            }
+            return true;
+        }
+
+        /**
+         * Returns the target of the current arc.
+         * @return the index of the target node
+         */
+        public int target() {
+            return target;
+        }
+
+        /**
+         * Returns the weight of the current arc.
+         * @return the weight, or {@link DotParser#NO_WEIGHT} if the graph is unweighted
+         */
+        public int weight() {
+            if (byteWeights != null) return minWeight + (byteWeights[arc] & 0xFF);
+            if (shortWeights != null) return minWeight + (shortWeights[arc] & 0xFFFF);
+            if (intWeights != null) return intWeights[arc];
+            return DotParser.NO_WEIGHT;
+        }
+
+        /**
+         * Returns the position of the current arc, the same as in the {@link CsrGraph} the
+         * structure was built from.
+         * @return the position of the arc
+         */
+        public int arc() {
+            return arc;
+        }
+    }
+}
@@ -0,0 +1,791 @@
+package m1graphs2024;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Immutable compressed sparse row snapshot of a graph. Nodes are numbered from 0 in increasing id
+ * order, and the arcs leaving node {@code i} are stored between {@code offset(i)} and
+ * {@code offset(i + 1)}, sorted by target. A directed graph has one arc per edge; an undirected
+ * graph has one arc per end of each edge, a self-loop thus giving two arcs on its node.
+ * <p>The snapshot can be saved to and loaded from a binary file, version {@value #VERSION}, in
+ * little-endian order:</p>
+ * <pre>
+ * int    magic 'CPPG'
+ * int    version
+ * int    flags (1: directed, 2: weights, 4: colours)
+ * int    number of nodes n
+ * long   number of arcs m
+ * int    number of colours c
+ * int    reserved
+ * int[n]   node ids, increasing
+ * int[n+1] offsets
+ * int[m]   targets
+ * int[m]   weights, {@link DotParser#NO_WEIGHT} for an unweighted arc (if flag 2)
+ * int[m]   colour indexes, -1 for no colour (if flag 4)
+ * c times  int length, UTF-8 bytes of a colour
+ * name and label, each as an int length (-1 for null) and UTF-8 bytes
+ * </pre>
+ * Loading a file maps every section in memory without reading any arc. A snapshot can also be
+ * moved out of the Java heap with {@link #toDirect()} or {@link #toTemporaryFile()}: it then holds
+ * about 8 bytes per arc of an unweighted graph, 12 with weights, and no object per node or edge.
+ * @author Johan Barçon
+ */
+public class CsrGraph {
+    /**
+     * Version of the binary format written by {@link #write(Path)}.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x47505043;
+    private static final int DIRECTED = 1;
+    private static final int WEIGHTS = 2;
+    private static final int COLOURS = 4;
+    private static final int HEADER_SIZE = 32;
+
+    private final boolean directed;
+    private final IntBuffer nodeIds;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer weights;
+    private final IntBuffer colors;
+    private final String[] colorNames;
+    private final String name;
+    private final String label;
+    private IntBuffer edges;
+
+    private CsrGraph(boolean directed, IntBuffer nodeIds, IntBuffer offsets, IntBuffer targets, IntBuffer weights,
+                     IntBuffer colors, IntBuffer edges, String[] colorNames, String name, String label) {
+        this.directed = directed;
+        this.nodeIds = nodeIds;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.colors = colors;
+        this.edges = edges;
+        this.colorNames = colorNames;
+        this.name = name;
+        this.label = label;
+    }
+
+    /**
+     * Builds the snapshot of a graph, directed unless it is an {@link UndirectedGraph}.
+     * @param graph the graph
+     * @return the snapshot
+     */
+    public static CsrGraph of(Graph graph) {
+        return of(graph, graph.getAllNodes(), graph.getAllEdges());
+    }
+
+    /**
+     * Builds the snapshot of a graph from its nodes and edges already retrieved.
+     * @param graph the graph
+     * @param nodes the nodes of the graph, as {@link Graph#getAllNodes()} gives them
+     * @param edges the edges of the graph, as {@link Graph#getAllEdges()} gives them
+     * @return the snapshot
+     */
+    static CsrGraph of(Graph graph, List<Node> nodes, List<Edge> edges) {
+        int[] ids = new int[nodes.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = nodes.get(i).getId();
+        EdgeBuffer buffer = new EdgeBuffer(edges.size());
+        for (Edge e : edges) {
+            buffer.edge(e.from().getId(), e.to().getId(), e.isWeighted() ? e.getWeight() : DotParser.NO_WEIGHT, e.getColor());
+        }
+        return build(ids, buffer, !(graph instanceof UndirectedGraph), graph.getName(), graph.label);
+    }
+
+    /**
+     * Builds the snapshot of the edges read by a parser.
+     * @param edges the edges and node statements
+     * @param directed whether the edges are directed
+     * @return the snapshot
+     */
+    public static CsrGraph of(EdgeBuffer edges, boolean directed) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < edges.size(); i++) {
+            min = Math.min(min, Math.min(edges.from(i), edges.to(i)));
+            max = Math.max(max, Math.max(edges.from(i), edges.to(i)));
+        }
+        for (int i = 0; i < edges.nbNodes(); i++) {
+            min = Math.min(min, edges.nodeId(i));
+            max = Math.max(max, edges.nodeId(i));
+        }
+        int count = 2 * edges.size() + edges.nbNodes();
+        if (count == 0) return build(new int[0], edges, directed, null, null);
+        if ((long) max - min < 4L * count + 1024) {
+            boolean[] present = new boolean[max - min + 1];
+            for (int i = 0; i < edges.size(); i++) {
+                present[edges.from(i) - min] = true;
+                present[edges.to(i) - min] = true;
+            }
+            for (int i = 0; i < edges.nbNodes(); i++) present[edges.nodeId(i) - min] = true;
+            int n = 0;
+            for (boolean p : present) if (p) n++;
+            int[] ids = new int[n];
+            n = 0;
+            for (int id = 0; id < present.length; id++) if (present[id]) ids[n++] = min + id;
+            return build(ids, edges, directed, null, null);
+        }
+        int[] ids = new int[count];
+        count = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            ids[count++] = edges.from(i);
+            ids[count++] = edges.to(i);
+        }
+        for (int i = 0; i < edges.nbNodes(); i++) ids[count++] = edges.nodeId(i);
+        Arrays.sort(ids);
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (n == 0 || ids[i] != ids[n - 1]) ids[n++] = ids[i];
+        }
+        return build(Arrays.copyOf(ids, n), edges, directed, null, null);
+    }
+
+    /**
+     * Sorts the arcs by source then by target with two stable counting sorts. Node ids are turned
+     * into indexes through a table when they are dense enough, by binary search otherwise.
+     */
+    private static CsrGraph build(int[] ids, EdgeBuffer edges, boolean directed, String name, String label) {
+        int n = ids.length;
+        int nbEdges = edges.size();
+        long nbArcs = directed ? nbEdges : 2L * nbEdges;
+        if (nbArcs > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many edges for a snapshot: " + nbEdges);
+        }
+        int m = (int) nbArcs;
+        int[] source = new int[m];
+        int[] target = new int[m];
+        int[] edge = new int[m];
+        boolean weighted = false;
+        boolean coloured = false;
+        int min = n == 0 ? 0 : ids[0];
+        int[] index = null;
+        if (n > 0 && (long) ids[n - 1] - min < 4L * n + 1024) {
+            index = new int[ids[n - 1] - min + 1];
+            for (int i = 0; i < n; i++) index[ids[i] - min] = i;
+        }
+        for (int i = 0, a = 0; i < nbEdges; i++) {
+            int u = index != null ? index[edges.from(i) - min] : Arrays.binarySearch(ids, edges.from(i));
+            int v = index != null ? index[edges.to(i) - min] : Arrays.binarySearch(ids, edges.to(i));
+            source[a] = u;
+            target[a] = v;
+            edge[a++] = i;
+            if (!directed) {
+                source[a] = v;
+                target[a] = u;
+                edge[a++] = i;
+            }
+            weighted |= edges.weight(i) != DotParser.NO_WEIGHT;
+            coloured |= edges.colorIndex(i) != -1;
+        }
+        int[] count = new int[n + 1];
+        int[] byTarget = new int[m];
+        for (int a = 0; a < m; a++) count[target[a] + 1]++;
+        for (int i = 0; i < n; i++) count[i + 1] += count[i];
+        for (int a = 0; a < m; a++) byTarget[count[target[a]]++] = a;
+        int[] offsets = new int[n + 1];
+        for (int a = 0; a < m; a++) offsets[source[a] + 1]++;
+        for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+        int[] next = Arrays.copyOf(offsets, n);
+        int[] targets = new int[m];
+        int[] weights = weighted ? new int[m] : null;
+        int[] colors = coloured ? new int[m] : null;
+        int[] arcEdges = new int[m];
+        for (int k = 0; k < m; k++) {
+            int a = byTarget[k];
+            int position = next[source[a]]++;
+            targets[position] = target[a];
+            arcEdges[position] = edge[a];
+            if (weighted) weights[position] = edges.weight(edge[a]);
+            if (coloured) colors[position] = edges.colorIndex(edge[a]);
+        }
+        return new CsrGraph(directed, IntBuffer.wrap(ids), IntBuffer.wrap(offsets), IntBuffer.wrap(targets),
+                weighted ? IntBuffer.wrap(weights) : null, coloured ? IntBuffer.wrap(colors) : null, IntBuffer.wrap(arcEdges),
+                edges.getColors().toArray(new String[0]), name, label);
+    }
+
+    /**
+     * Tells whether the arcs are directed edges.
+     * @return true for a directed graph
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Retrieves the name of the graph.
+     * @return the name, or null
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retrieves the label of the graph.
+     * @return the label, or null
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns the number of nodes.
+     * @return the number of nodes
+     */
+    public int nbNodes() {
+        return nodeIds.limit();
+    }
+
+    /**
+     * Returns the number of arcs, twice the number of edges for an undirected graph.
+     * @return the number of arcs
+     */
+    public int nbArcs() {
+        return targets.limit();
+    }
+
+    /**
+     * Returns the number of edges of the graph.
+     * @return the number of edges
+     */
+    public int nbEdges() {
+        return directed ? nbArcs() : nbArcs() / 2;
+    }
+
+    /**
+     * Returns the id of a node.
+     * @param i the index of the node
+     * @return the id of the node
+     */
+    public int nodeId(int i) {
+        return nodeIds.get(i);
+    }
+
+    /**
+     * Returns the index of a node.
+     * @param id the id of the node
+     * @return the index of the node, or -1 if there is no such node
+     */
+    public int indexOf(int id) {
+        int low = 0;
+        int high = nbNodes() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = nodeIds.get(middle);
+            if (value < id) low = middle + 1;
+            else if (value > id) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position of the first arc leaving a node; the arcs of node {@code i} end at
+     * {@code offset(i + 1)}.
+     * @param i the index of the node
+     * @return the position of its first arc
+     */
+    public int offset(int i) {
+        return offsets.get(i);
+    }
+
+    /**
+     * Returns the number of arcs leaving a node.
+     * @param i the index of the node
+     * @return the out-degree, or the degree for an undirected graph
+     */
+    public int degree(int i) {
+        return offsets.get(i + 1) - offsets.get(i);
+    }
+
+    /**
+     * Returns the target of an arc.
+     * @param a the position of the arc
+     * @return the index of the target node
+     */
+    public int target(int a) {
+        return targets.get(a);
+    }
+
+    /**
+     * Tells whether the arcs carry weights.
+     * @return true if at least one edge is weighted
+     */
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    /**
+     * Returns the weight of an arc.
+     * @param a the position of the arc
+     * @return the weight, or {@link DotParser#NO_WEIGHT}
+     */
+    public int weight(int a) {
+        return weights == null ? DotParser.NO_WEIGHT : weights.get(a);
+    }
+
+    /**
+     * Returns the colour of an arc.
+     * @param a the position of the arc
+     * @return the colour, or null
+     */
+    public String color(int a) {
+        if (colors == null) return null;
+        int c = colors.get(a);
+        return c == -1 ? null : colorNames[c];
+    }
+
+    /**
+     * Returns the index of the edge an arc stands for, both arcs of an undirected edge sharing it.
+     * Edges are numbered in the order they were given: that of {@link Graph#getAllEdges()} for the
+     * snapshot of a graph, the order in which {@link #fill(Graph)} adds them for a snapshot read
+     * from a file.
+     * @param a the position of the arc
+     * @return the index of its edge, between 0 and {@link #nbEdges()} excluded
+     */
+    public int edge(int a) {
+        if (edges == null) edges = numberEdges();
+        return edges.get(a);
+    }
+
+    /**
+     * Retrieves the nodes reachable from several source nodes at once, the sources included, with
+     * a single breadth-first search.
+     * @param sources the indexes of the source nodes
+     * @param reached the set receiving the indexes of the nodes reached; it is cleared first, so
+     *                the same set can be reused from one search to the next
+     * @return the set given
+     */
+    public BitSet reachable(int[] sources, BitSet reached) {
+        return reachable(sources, reached, new int[nbNodes()]);
+    }
+
+    /**
+     * Retrieves the nodes reachable from several source nodes at once, the search queuing the nodes
+     * in the array given, so that a caller searching the same snapshot again can reuse it.
+     * @param sources the indexes of the source nodes
+     * @param reached the set receiving the indexes of the nodes reached; it is cleared first
+     * @param queue an array of at least {@link #nbNodes()} entries, overwritten
+     * @return the set given
+     */
+    BitSet reachable(int[] sources, BitSet reached, int[] queue) {
+        reached.clear();
+        int count = 0;
+        for (int s : sources) {
+            if (reached.get(s)) continue;
+            reached.set(s);
+            queue[count++] = s;
+        }
+        return search(reached, queue, count);
+    }
+
+    /**
+     * Retrieves the nodes reachable from a node through at least one arc, the node itself being
+     * reached only if a path leads back to it through another node, which is always the case for a
+     * node of an undirected graph with a neighbour; a self-loop alone does not make it reached.
+     * @param source the index of the node
+     * @param reached the set receiving the indexes of the nodes reached; it is cleared first
+     * @return the set given
+     */
+    public BitSet descendants(int source, BitSet reached) {
+        return descendants(source, reached, new int[nbNodes()]);
+    }
+
+    /**
+     * Retrieves the nodes reachable from a node through at least one arc, the search queuing the
+     * nodes in the array given, so that a caller searching the same snapshot again can reuse it.
+     * @param source the index of the node
+     * @param reached the set receiving the indexes of the nodes reached; it is cleared first
+     * @param queue an array of at least {@link #nbNodes()} entries, overwritten
+     * @return the set given
+     */
+    BitSet descendants(int source, BitSet reached, int[] queue) {
+        reached.clear();
+        int count = 0;
+        for (int a = offsets.get(source), end = offsets.get(source + 1); a < end; a++) {
+            int v = targets.get(a);
+            if (v == source || reached.get(v)) continue;
+            reached.set(v);
+            queue[count++] = v;
+        }
+        return search(reached, queue, count);
+    }
+
+    /**
+     * Breadth-first search from the nodes already in the queue, which are marked as reached.
+     */
+    private BitSet search(BitSet reached, int[] queue, int count) {
+        for (int head = 0; head < count; head++) {
+            int u = queue[head];
+            for (int a = offsets.get(u), end = offsets.get(u + 1); a < end; a++) {
+                int v = targets.get(a);
+                if (reached.get(v)) continue;
+                reached.set(v);
+                queue[count++] = v;
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Numbers the edges of a snapshot read from a file. The arcs of a node being sorted by target,
+     * the arcs toward smaller nodes come first, in the order those nodes number their edges, so a
+     * cursor per node finds the second arc of each edge.
+     */
+    private IntBuffer numberEdges() {
+        int n = nbNodes();
+        IntBuffer numbers = targets.isDirect() ? allocateDirect(nbArcs()) : IntBuffer.allocate(nbArcs());
+        if (directed) {
+            for (int a = 0; a < numbers.limit(); a++) numbers.put(a, a);
+            return numbers;
+        }
+        int[] cursor = new int[n];
+        for (int u = 0; u < n; u++) cursor[u] = offsets.get(u);
+        int count = 0;
+        for (int u = 0; u < n; u++) {
+            for (int a = cursor[u], end = offsets.get(u + 1); a < end; a++) {
+                int v = targets.get(a);
+                if (v == u) {
+                    numbers.put(a, count);
+                    numbers.put(++a, count++);
+                } else {
+                    numbers.put(a, count);
+                    numbers.put(cursor[v]++, count++);
+                }
+            }
+        }
+        return numbers;
+    }
+
+    /**
+     * Tells whether a node has an arc toward another one, by binary search among its arcs.
+     * @param i the index of the source node
+     * @param j the index of the target node
+     * @return true if there is at least one arc from i to j
+     */
+    public boolean existsArc(int i, int j) {
+        int low = offsets.get(i);
+        int high = offsets.get(i + 1) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = targets.get(middle);
+            if (value < j) low = middle + 1;
+            else if (value > j) high = middle - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds up the weights of the edges, an unweighted edge weighing 1.
+     * @return the total weight of the graph
+     */
+    public long totalWeight() {
+        long total = 0;
+        for (int a = 0; a < nbArcs(); a++) total += weights == null || weights.get(a) == DotParser.NO_WEIGHT ? 1 : weights.get(a);
+        return directed ? total : total / 2;
+    }
+
+    /**
+     * Tells whether an arc is the first of the two arcs of its undirected edge, that is whether it
+     * goes to a larger index or is the first arc of a self-loop. Always true for a directed graph.
+     * @param source the index of the source node
+     * @param a the position of the arc
+     * @return true if the arc stands for its edge
+     */
+    public boolean isPrimary(int source, int a) {
+        if (directed) return true;
+        int v = targets.get(a);
+        if (v != source) return v > source;
+        int first = a;
+        while (first > offsets.get(source) && targets.get(first - 1) == source) first--;
+        return ((a - first) & 1) == 0;
+    }
+
+    /**
+     * Retrieves the nodes in depth-first order, from a source node then from every node left
+     * unvisited, in increasing index order. The successors of a node are visited in increasing
+     * index order. The search keeps its path on an array instead of the call stack, so that long
+     * paths cannot overflow it.
+     * @param source the index of the first node
+     * @return the indexes of the nodes, in the order they are discovered
+     */
+    public int[] dfsOrder(int source) {
+        int n = nbNodes();
+        int[] order = new int[n];
+        if (n == 0) return order;
+        int[] path = new int[n];
+        int[] next = new int[n];
+        BitSet visited = new BitSet(n);
+        int count = 0;
+        for (int i = -1; i < n; i++) {
+            int root = i == -1 ? source : i;
+            if (visited.get(root)) continue;
+            visited.set(root);
+            order[count++] = root;
+            int depth = 0;
+            path[depth] = root;
+            next[depth++] = offsets.get(root);
+            while (depth > 0) {
+                int a = next[depth - 1];
+                if (a == offsets.get(path[depth - 1] + 1)) {
+                    depth--;
+                    continue;
+                }
+                next[depth - 1] = a + 1;
+                int v = targets.get(a);
+                if (visited.get(v)) continue;
+                visited.set(v);
+                order[count++] = v;
+                path[depth] = v;
+                next[depth++] = offsets.get(v);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Retrieves the nodes in breadth-first order, from a source node then from every node left
+     * unvisited, in increasing index order. The successors of a node are visited in increasing
+     * index order; the order array itself serves as the queue.
+     * @param source the index of the first node
+     * @return the indexes of the nodes, in the order they are discovered
+     */
+    public int[] bfsOrder(int source) {
+        int n = nbNodes();
+        int[] order = new int[n];
+        if (n == 0) return order;
+        BitSet visited = new BitSet(n);
+        int count = 0;
+        for (int i = -1; i < n; i++) {
+            int root = i == -1 ? source : i;
+            if (visited.get(root)) continue;
+            visited.set(root);
+            int head = count;
+            order[count++] = root;
+            while (head < count) {
+                int u = order[head++];
+                for (int a = offsets.get(u), end = offsets.get(u + 1); a < end; a++) {
+                    int v = targets.get(a);
+                    if (visited.get(v)) continue;
+                    visited.set(v);
+                    order[count++] = v;
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Copies the nodes and edges of the snapshot into a graph, each edge being stored once from
+     * its source node, or from its smallest node when undirected.
+     * @param graph the graph to fill
+     * @param <G> the type of the graph
+     * @return the graph given
+     */
+    public <G extends Graph> G fill(G graph) {
+        if (graph.getName().isEmpty()) graph.setName(name);
+        if (graph.getLabel().isEmpty()) graph.label = label;
+        GraphBuilder builder = new GraphBuilder(graph);
+        for (int u = 0; u < nbNodes(); u++) {
+            builder.node(nodeId(u));
+        }
+        for (int u = 0; u < nbNodes(); u++) {
+            int end = offsets.get(u + 1);
+            for (int a = offsets.get(u); a < end; a++) {
+                if (isPrimary(u, a)) builder.edge(nodeId(u), nodeId(targets.get(a)), weight(a), color(a));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Builds a graph holding the nodes and edges of the snapshot.
+     * @return an UndirectedGraph, or a Graph if the snapshot is directed
+     */
+    public Graph toGraph() {
+        return fill(directed ? new Graph() : new UndirectedGraph());
+    }
+
+    /**
+     * Copies the snapshot outside of the Java heap, every section going to its own direct buffer,
+     * so that a graph larger than the heap can be held in native memory.
+     * @return a snapshot with the same nodes and arcs, backed by direct buffers
+     */
+    public CsrGraph toDirect() {
+        return new CsrGraph(directed, direct(nodeIds), direct(offsets), direct(targets), direct(weights), direct(colors),
+                direct(edges), colorNames, name, label);
+    }
+
+    /**
+     * Moves the snapshot to a temporary binary file mapped in memory, the system paging its arcs
+     * in and out as they are read, so that neither the heap nor native memory has to hold them.
+     * The file is deleted when the virtual machine exits.
+     * @return a snapshot with the same nodes and arcs, backed by the file
+     * @throws IOException if the file cannot be written
+     */
+    public CsrGraph toTemporaryFile() throws IOException {
+        Path file = Files.createTempFile("graph-", ".gbin");
+        file.toFile().deleteOnExit();
+        write(file);
+        return read(file);
+    }
+
+    private static IntBuffer direct(IntBuffer values) {
+        if (values == null || values.isDirect()) return values;
+        IntBuffer copy = allocateDirect(values.limit());
+        copy.put(values.duplicate().clear());
+        return copy.clear();
+    }
+
+    private static IntBuffer allocateDirect(int length) {
+        if (length > Integer.MAX_VALUE / 4) throw new IllegalArgumentException("Too many values for a direct buffer: " + length);
+        return ByteBuffer.allocateDirect(4 * length).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Saves the snapshot to a binary file.
+     * @param path the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION)
+                    .putInt((directed ? DIRECTED : 0) | (weights != null ? WEIGHTS : 0) | (colors != null ? COLOURS : 0))
+                    .putInt(nbNodes()).putLong(nbArcs()).putInt(colorNames.length).putInt(0);
+            writeInts(channel, buffer, nodeIds);
+            writeInts(channel, buffer, offsets);
+            writeInts(channel, buffer, targets);
+            if (weights != null) writeInts(channel, buffer, weights);
+            if (colors != null) writeInts(channel, buffer, colors);
+            for (String c : colorNames) writeString(channel, buffer, c);
+            writeString(channel, buffer, name);
+            writeString(channel, buffer, label);
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Maps a binary file in memory.
+     * @param path the path of the file
+     * @return the snapshot, reading its arcs from the file
+     * @throws IOException if the file cannot be read or is not a binary graph
+     */
+    public static CsrGraph read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) throw new IOException("Not a binary graph file: " + path);
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) throw new IOException("Not a binary graph file: " + path);
+            int version = header.getInt();
+            if (version > VERSION) throw new IOException("Unsupported binary graph version " + version + ": " + path);
+            int flags = header.getInt();
+            int n = header.getInt();
+            long m = header.getLong();
+            int nbColors = header.getInt();
+            if (n < 0 || m < 0 || m > Integer.MAX_VALUE || nbColors < 0) {
+                throw new IOException("Corrupted binary graph file: " + path);
+            }
+            long position = HEADER_SIZE;
+            long end = position + 4L * (2L * n + 1 + m * (1 + Long.bitCount(flags & (WEIGHTS | COLOURS))));
+            if (end > size) throw new IOException("Truncated binary graph file: " + path);
+            IntBuffer nodeIds = map(channel, position, 4L * n).asIntBuffer();
+            position += 4L * n;
+            IntBuffer offsets = map(channel, position, 4L * (n + 1)).asIntBuffer();
+            position += 4L * (n + 1);
+            IntBuffer targets = map(channel, position, 4L * m).asIntBuffer();
+            position += 4L * m;
+            IntBuffer weights = null;
+            if ((flags & WEIGHTS) != 0) {
+                weights = map(channel, position, 4L * m).asIntBuffer();
+                position += 4L * m;
+            }
+            IntBuffer colors = null;
+            if ((flags & COLOURS) != 0) {
+                colors = map(channel, position, 4L * m).asIntBuffer();
+                position += 4L * m;
+            }
+            ByteBuffer tail = map(channel, position, size - position);
+            String[] colorNames = new String[nbColors];
+            for (int c = 0; c < nbColors; c++) colorNames[c] = readString(tail);
+            String name = tail.hasRemaining() ? readString(tail) : null;
+            String label = tail.hasRemaining() ? readString(tail) : null;
+            return new CsrGraph((flags & DIRECTED) != 0, nodeIds, offsets, targets, weights, colors, null, colorNames, name, label);
+        }
+    }
+
+    /**
+     * Converts a DOT file to a binary file, without building any Node or Edge.
+     * @param dot the path of the DOT file, possibly gzipped
+     * @param binary the path of the binary file to write
+     * @return the snapshot written
+     * @throws IOException if a file cannot be read or written
+     */
+    public static CsrGraph convert(Path dot, Path binary) throws IOException {
+        EdgeBuffer edges = new EdgeBuffer();
+        DotParser parser;
+        try (ReadableByteChannel channel = GraphFiles.openInput(dot)) {
+            parser = new DotParser(channel);
+            parser.parse(edges);
+        }
+        CsrGraph graph = of(edges, parser.isDirected());
+        graph.write(binary);
+        return graph;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, IntBuffer values) throws IOException {
+        for (int i = 0; i < values.limit(); ) {
+            if (buffer.remaining() < 4) flush(channel, buffer);
+            int length = Math.min(buffer.remaining() / 4, values.limit() - i);
+            buffer.asIntBuffer().put(values.duplicate().position(i).limit(i + length));
+            buffer.position(buffer.position() + 4 * length);
+            i += length;
+        }
+    }
+
+    private static void writeString(FileChannel channel, ByteBuffer buffer, String s) throws IOException {
+        byte[] bytes = s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+        if (buffer.remaining() < 4) flush(channel, buffer);
+        buffer.putInt(bytes == null ? -1 : bytes.length);
+        if (bytes == null) return;
+        for (int i = 0; i < bytes.length; ) {
+            if (!buffer.hasRemaining()) flush(channel, buffer);
+            int length = Math.min(buffer.remaining(), bytes.length - i);
+            buffer.put(bytes, i, length);
+            i += length;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length == -1) return null;
+        if (length < 0 || length > buffer.remaining()) throw new IOException("Corrupted binary graph file");
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
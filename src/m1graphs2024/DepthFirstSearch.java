@@ -0,0 +1,175 @@
+package m1graphs2024;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Depth-first search over a {@link CsrGraph}, recording discovery and finish times and classifying
+ * every edge in a single pass. The search starts from a source node then goes on from every node
+ * left unvisited, in increasing index order, visiting the successors of a node in increasing index
+ * order. Times go from 1 to twice the number of nodes. Results are kept in arrays indexed by node
+ * index and by edge index ({@link CsrGraph#edge(int)}); the maps used by
+ * {@link Graph#getDFSWithVisitInfo(Node, Map, Map)} are only built when asked for.
+ * <p>An arc toward a white node is a tree edge, toward a grey node a backward edge, and toward a
+ * black node a forward edge if it was discovered after the source of the arc, a cross edge
+ * otherwise. An undirected edge is classified by the first of its two arcs explored, so it is
+ * either a tree or a backward edge.</p>
+ * @author Johan Barçon
+ */
+public class DepthFirstSearch {
+    private static final EdgeVisitType[] TYPES = EdgeVisitType.values();
+
+    private final CsrGraph graph;
+    private final int[] order;
+    private final int[] discovery;
+    private final int[] finish;
+    private final int[] predecessor;
+    private final byte[] edgeTypes;
+
+    /**
+     * Runs the search.
+     * @param graph the snapshot to search
+     * @param source the index of the first node
+     */
+    public DepthFirstSearch(CsrGraph graph, int source) {
+        this.graph = graph;
+        int n = graph.nbNodes();
+        order = new int[n];
+        discovery = new int[n];
+        finish = new int[n];
+        predecessor = new int[n];
+        edgeTypes = new byte[graph.nbEdges()];
+        byte unclassified = (byte) EdgeVisitType.NULL.ordinal();
+        for (int e = 0; e < edgeTypes.length; e++) edgeTypes[e] = unclassified;
+        int[] path = new int[n];
+        int[] next = new int[n];
+        int time = 0;
+        int count = 0;
+        for (int i = -1; i < n; i++) {
+            int root = i == -1 ? source : i;
+            if (n == 0 || discovery[root] != 0) continue;
+            discovery[root] = ++time;
+            predecessor[root] = -1;
+            order[count++] = root;
+            int depth = 0;
+            path[depth] = root;
+            next[depth++] = graph.offset(root);
+            while (depth > 0) {
+                int u = path[depth - 1];
+                int a = next[depth - 1];
+                if (a == graph.offset(u + 1)) {
+                    finish[u] = ++time;
+                    depth--;
+                    continue;
+                }
+                next[depth - 1] = a + 1;
+                int e = graph.edge(a);
+                if (!graph.isDirected() && edgeTypes[e] != unclassified) continue;
+                int v = graph.target(a);
+                EdgeVisitType type;
+                if (discovery[v] == 0) type = EdgeVisitType.TREE;
+                else if (finish[v] == 0) type = EdgeVisitType.BACKWARD;
+                else type = discovery[u] < discovery[v] ? EdgeVisitType.FORWARD : EdgeVisitType.CROSS;
+                edgeTypes[e] = (byte) type.ordinal();
+                if (type != EdgeVisitType.TREE) continue;
+                discovery[v] = ++time;
+                predecessor[v] = u;
+                order[count++] = v;
+                path[depth] = v;
+                next[depth++] = graph.offset(v);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the snapshot searched.
+     * @return the snapshot
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Retrieves the nodes in the order they were discovered.
+     * @return the indexes of the nodes
+     */
+    public int[] order() {
+        return order.clone();
+    }
+
+    /**
+     * Retrieves the discovery time of a node.
+     * @param i the index of the node
+     * @return its discovery time
+     */
+    public int discovery(int i) {
+        return discovery[i];
+    }
+
+    /**
+     * Retrieves the finish time of a node.
+     * @param i the index of the node
+     * @return its finish time
+     */
+    public int finish(int i) {
+        return finish[i];
+    }
+
+    /**
+     * Retrieves the node from which a node was discovered.
+     * @param i the index of the node
+     * @return the index of its predecessor, or -1 for the root of a DFS tree
+     */
+    public int predecessor(int i) {
+        return predecessor[i];
+    }
+
+    /**
+     * Retrieves the type of an edge.
+     * @param e the index of the edge
+     * @return its type
+     */
+    public EdgeVisitType edgeType(int e) {
+        return TYPES[edgeTypes[e]];
+    }
+
+    /**
+     * Builds the visit information of every node, all of them being black once the search is over.
+     * @param nodes the nodes of the graph, in increasing ID order as {@link Graph#getAllNodes()} gives them
+     * @return a map of the nodes to their visit information
+     */
+    public Map<Node, NodeVisitInfo> nodeVisitInfo(List<Node> nodes) {
+        Map<Node, NodeVisitInfo> res = new HashMap<>(2 * nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            res.put(nodes.get(i), visitInfo(nodes, i, new NodeVisitInfo()));
+        }
+        return res;
+    }
+
+    /**
+     * Fills the visit information of a node.
+     * @param nodes the nodes of the graph, in increasing ID order
+     * @param i the index of the node
+     * @param info the visit information to fill
+     * @return the visit information given
+     */
+    NodeVisitInfo visitInfo(List<Node> nodes, int i, NodeVisitInfo info) {
+        info.setColor(NodeColour.BLACK);
+        info.setPredecessor(predecessor[i] == -1 ? null : nodes.get(predecessor[i]));
+        info.setDiscovery(discovery[i]);
+        info.setFinished(finish[i]);
+        return info;
+    }
+
+    /**
+     * Builds the type of every edge.
+     * @param edges the edges of the graph, as {@link Graph#getAllEdges()} gives them
+     * @return a map of the edges to their type
+     */
+    public Map<Edge, EdgeVisitType> edgeVisitTypes(List<Edge> edges) {
+        Map<Edge, EdgeVisitType> res = new HashMap<>(2 * edges.size());
+        for (int e = 0; e < edges.size(); e++) res.put(edges.get(e), edgeType(e));
+        return res;
+    }
+}
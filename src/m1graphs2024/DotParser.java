@@ -0,0 +1,365 @@
+package m1graphs2024;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Streaming tokenizer for the subset of the DOT language used by the graphs of this package.
+ * The input is read byte by byte from a large buffer refilled in blocks, without regular expressions and without
+ * building a String per line: node ids and the {@code label}, {@code len} and {@code color}
+ * attributes are decoded in place and handed to a {@link Handler}. Colours are looked up in a
+ * small dictionary, so each distinct colour is turned into a String only once.
+ * <p>Statements may be separated by new lines or semicolons. Graph headers, braces, comments,
+ * graph attributes ({@code rankdir=LR}, {@code label="..."}) and unknown attributes are skipped.
+ * The weight of an edge is its {@code len} attribute, or its {@code label} when it is a number.</p>
+ * @author Johan Barçon
+ */
+public class DotParser {
+    /**
+     * Weight passed to {@link Handler#edge} for unweighted edges.
+     */
+    public static final int NO_WEIGHT = Integer.MIN_VALUE;
+
+    /**
+     * Receives the nodes and edges found by the parser.
+     */
+    public interface Handler {
+        /**
+         * Called for a node statement.
+         * @param id the id of the node
+         */
+        void node(int id);
+
+        /**
+         * Called for each edge of an edge statement, whether it uses {@code --} or {@code ->}.
+         * @param from the id of the source node
+         * @param to the id of the target node
+         * @param weight the weight of the edge, or {@link #NO_WEIGHT}
+         * @param color the colour of the edge, or null
+         */
+        void edge(int from, int to, int weight, String color);
+    }
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte[] LABEL = "label".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LEN = "len".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COLOR = "color".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DIGRAPH = "digraph".getBytes(StandardCharsets.US_ASCII);
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer source;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private final byte[] key = new byte[64];
+    private int keyLength;
+    private final byte[] value = new byte[64];
+    private int valueLength;
+    private int[] chain = new int[4];
+    private int foundLen;
+    private int foundLabel;
+    private int foundColor;
+    private byte[][] colorKeys = new byte[8][];
+    private String[] colorValues = new String[8];
+    private int nbColors = 0;
+    private boolean directed = false;
+
+    /**
+     * Creates a parser reading a channel through a buffer of 1 MB.
+     * @param channel the channel to read
+     */
+    public DotParser(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.source = null;
+    }
+
+    /**
+     * Creates a parser reading the remaining bytes of a buffer, for example a memory-mapped file.
+     * @param buffer the buffer to read
+     */
+    public DotParser(ByteBuffer buffer) {
+        this.channel = null;
+        this.source = buffer;
+    }
+
+    /**
+     * Parses a whole DOT file, gzipped or not, see {@link GraphFiles#openInput(Path)}.
+     * @param path the path of the file
+     * @param handler the handler receiving nodes and edges
+     * @throws IOException if the file cannot be read
+     */
+    public static void parse(Path path, Handler handler) throws IOException {
+        try (ReadableByteChannel channel = GraphFiles.openInput(path)) {
+            new DotParser(channel).parse(handler);
+        }
+    }
+
+    /**
+     * Parses the input until its end.
+     * @param handler the handler receiving nodes and edges
+     * @throws IOException if the input cannot be read
+     */
+    public void parse(Handler handler) throws IOException {
+        int c;
+        while ((c = skipBlanks()) != -1) {
+            if (isDigit(c)) {
+                statement(handler);
+            } else if (isLetter(c)) {
+                if (equals(key, readIdentifier(key), DIGRAPH)) directed = true;
+                if (skipBlanks() == '=') {
+                    next();
+                    skipBlanks();
+                    skipValue();
+                }
+            } else if (c == '"') {
+                skipValue();
+            } else if (c == '[') {
+                attributes();
+            } else {
+                next();
+            }
+        }
+    }
+
+    /**
+     * Tells whether the input parsed so far is a directed graph, that is whether it declared a
+     * {@code digraph} or used {@code ->}.
+     * @return true if the graph is directed
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Parses a node statement or an edge statement, possibly chained ({@code 1 -- 2 -- 3}).
+     */
+    private void statement(Handler handler) throws IOException {
+        int length = 0;
+        chain[length++] = readInt();
+        while (skipBlanks() == '-') {
+            next();
+            int op = next();
+            if (op != '-' && op != '>') break;
+            if (op == '>') directed = true;
+            skipBlanks();
+            if (!isDigit(peek())) break;
+            if (length == chain.length) chain = Arrays.copyOf(chain, 2 * length);
+            chain[length++] = readInt();
+        }
+        int weight = NO_WEIGHT;
+        String color = null;
+        int label = NO_WEIGHT;
+        while (skipBlanks() == '[') {
+            attributes();
+            if (foundLen != NO_WEIGHT) weight = foundLen;
+            if (foundLabel != NO_WEIGHT) label = foundLabel;
+            if (foundColor != -1) color = colorValues[foundColor];
+        }
+        if (weight == NO_WEIGHT) weight = label;
+        if (length == 1) {
+            handler.node(chain[0]);
+            return;
+        }
+        for (int i = 0; i + 1 < length; i++) {
+            handler.edge(chain[i], chain[i + 1], weight, color);
+        }
+    }
+
+    /**
+     * Parses an attribute list starting at '[', keeping the {@code len} value, the numeric
+     * {@code label} value and the colour index found.
+     */
+    private void attributes() throws IOException {
+        foundLen = NO_WEIGHT;
+        foundLabel = NO_WEIGHT;
+        foundColor = -1;
+        next();
+        int c;
+        while ((c = skipBlanks()) != -1 && c != ']') {
+            if (c == ',' || c == ';') {
+                next();
+                continue;
+            }
+            keyLength = readToken(key);
+            if (keyLength == 0) {
+                next();
+                continue;
+            }
+            if (skipBlanks() != '=') continue;
+            next();
+            skipBlanks();
+            valueLength = readToken(value);
+            if (equals(key, keyLength, LEN)) {
+                foundLen = parseValue();
+            } else if (equals(key, keyLength, LABEL)) {
+                foundLabel = parseValue();
+            } else if (equals(key, keyLength, COLOR)) {
+                foundColor = color();
+            }
+        }
+        if (c == ']') next();
+    }
+
+    /**
+     * Reads an identifier, a number or a quoted string into the given array, keeping at most its
+     * first bytes.
+     * @return the number of bytes kept
+     */
+    private int readToken(byte[] into) throws IOException {
+        int length = 0;
+        int c = peek();
+        if (c == '"') {
+            next();
+            while ((c = next()) != -1 && c != '"') {
+                if (c == '\\') c = next();
+                if (length < into.length) into[length++] = (byte) c;
+            }
+            return length;
+        }
+        while ((c = peek()) != -1 && (isLetter(c) || isDigit(c) || c == '.' || c == '-')) {
+            if (length < into.length) into[length++] = (byte) c;
+            next();
+        }
+        return length;
+    }
+
+    private int parseValue() {
+        if (valueLength == 0 || valueLength > 10) return NO_WEIGHT;
+        long result = 0;
+        for (int i = 0; i < valueLength; i++) {
+            if (!isDigit(value[i])) return NO_WEIGHT;
+            result = 10 * result + (value[i] - '0');
+        }
+        return result > Integer.MAX_VALUE ? NO_WEIGHT : (int) result;
+    }
+
+    /**
+     * Looks the current value up in the colour dictionary, adding it when it is new.
+     * @return the index of the colour
+     */
+    private int color() {
+        for (int i = 0; i < nbColors; i++) {
+            if (equals(value, valueLength, colorKeys[i])) return i;
+        }
+        if (nbColors == colorKeys.length) {
+            colorKeys = Arrays.copyOf(colorKeys, 2 * nbColors);
+            colorValues = Arrays.copyOf(colorValues, 2 * nbColors);
+        }
+        colorKeys[nbColors] = Arrays.copyOf(value, valueLength);
+        colorValues[nbColors] = new String(value, 0, valueLength, StandardCharsets.UTF_8);
+        return nbColors++;
+    }
+
+    private int readInt() throws IOException {
+        int result = 0;
+        int c;
+        while ((c = peek()) != -1 && isDigit(c)) {
+            if (result > (Integer.MAX_VALUE - (c - '0')) / 10) {
+                throw new IOException("Node id too large, above " + Integer.MAX_VALUE);
+            }
+            result = 10 * result + (c - '0');
+            next();
+        }
+        return result;
+    }
+
+    private int readIdentifier(byte[] into) throws IOException {
+        int length = 0;
+        int c;
+        while ((c = peek()) != -1 && (isLetter(c) || isDigit(c))) {
+            if (length < into.length) into[length++] = (byte) c;
+            next();
+        }
+        return length;
+    }
+
+    private void skipValue() throws IOException {
+        readToken(value);
+    }
+
+    /**
+     * Skips white spaces and comments.
+     * @return the next byte, which is not consumed, or -1 at the end of the input
+     */
+    private int skipBlanks() throws IOException {
+        int c;
+        while ((c = peek()) != -1) {
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == ';') {
+                next();
+            } else if (c == '#') {
+                skipLine();
+            } else if (c == '/') {
+                next();
+                int d = peek();
+                if (d == '/') {
+                    skipLine();
+                } else if (d == '*') {
+                    next();
+                    int previous = 0;
+                    while ((d = next()) != -1 && !(previous == '*' && d == '/')) previous = d;
+                }
+            } else {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = next()) != -1 && c != '\n') {
+            // skip
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return bytes[position] & 0xff;
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return bytes[position++] & 0xff;
+    }
+
+    /**
+     * Copies the next block of input into the byte array.
+     * @return false at the end of the input
+     */
+    private boolean fill() throws IOException {
+        position = 0;
+        limit = 0;
+        if (source != null) {
+            limit = Math.min(bytes.length, source.remaining());
+            source.get(bytes, 0, limit);
+            return limit > 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        limit = buffer.position();
+        return limit > 0;
+    }
+
+    private static boolean equals(byte[] bytes, int length, byte[] expected) {
+        if (length != expected.length) return false;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != expected[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c >= 0x80;
+    }
+}
@@ -0,0 +1,198 @@
+package m1graphs2024;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming exporter writing a graph in the DOT format of {@link Graph#toDotString()}, through a
+ * reusable character buffer and without building the whole text in memory. The graph is not
+ * modified: the edges of a node are written in order, sorting a copy of its edge list only when
+ * it is not sorted already.
+ * <p>An undirected edge stored from both of its nodes is written once. The symmetric edges still
+ * to be met are kept by endpoints and forgotten once their node has been written, so each edge
+ * is looked up in constant time.</p>
+ * @author Johan Barçon
+ */
+public class DotWriter {
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int length = 0;
+
+    /**
+     * Creates an exporter writing to a Writer.
+     * @param out the writer
+     */
+    public DotWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Creates an exporter writing UTF-8 text to an output stream.
+     * @param out the output stream
+     */
+    public DotWriter(OutputStream out) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates an exporter writing UTF-8 text to a channel.
+     * @param channel the channel
+     */
+    public DotWriter(WritableByteChannel channel) {
+        this(Channels.newWriter(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a graph and flushes the output.
+     * @param graph the graph to write, undirected if it is an {@link UndirectedGraph}
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Graph graph) throws IOException {
+        boolean undirected = graph instanceof UndirectedGraph;
+        append("# DOT string generated by the 'toDotString' function\n");
+        append(undirected ? "graph " : "digraph ").append(String.valueOf(graph.getName())).append("{\n\trankdir=LR");
+        List<Map.Entry<Node, List<Edge>>> nodes = new ArrayList<>(graph.adjacency().entrySet());
+        nodes.sort(Map.Entry.comparingByKey());
+        int[] ids = new int[nodes.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = nodes.get(i).getKey().getId();
+        boolean[] edgeNodes = new boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            for (Edge e : nodes.get(i).getValue()) {
+                edgeNodes[i] = true;
+                int target = Arrays.binarySearch(ids, e.to().getId());
+                if (target >= 0) edgeNodes[target] = true;
+            }
+        }
+        Map<Long, List<Integer>> pending = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (!edgeNodes[i]) {
+                append("\n\t").append(ids[i]);
+                continue;
+            }
+            List<Edge> edges = sorted(nodes.get(i).getValue());
+            if (!undirected) {
+                for (Edge e : edges) append("\n\t").edge(e);
+                continue;
+            }
+            boolean oneOnTwo = true;
+            for (Edge e : edges) {
+                if (!seen(pending, e)) {
+                    if (e.isSelfLoop()) {
+                        if (oneOnTwo) append("\n\t").edge(e);
+                        oneOnTwo = !oneOnTwo;
+                    } else append("\n\t").edge(e);
+                }
+                if (!e.isSelfLoop()) {
+                    pending.computeIfAbsent(key(e.to().getId(), e.from().getId()), k -> new ArrayList<>(1)).add(e.getWeight());
+                }
+            }
+            for (Edge e : edges) pending.remove(key(e.from().getId(), e.to().getId()));
+        }
+        if (graph.label != null) append("\n\tlabel=\"").append(graph.label).append("\"");
+        append("\n}");
+        flush();
+    }
+
+    /**
+     * Writes the buffered characters and flushes the underlying writer.
+     * @throws IOException if an I/O error occurs
+     */
+    public void flush() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+        out.flush();
+    }
+
+    /**
+     * Tells whether an edge equal to the given one, in the sense of {@link Edge#equals(Object)},
+     * is the symmetric of an edge already written.
+     */
+    private static boolean seen(Map<Long, List<Integer>> pending, Edge e) {
+        List<Integer> weights = pending.get(key(e.from().getId(), e.to().getId()));
+        if (weights == null) return false;
+        for (Integer w : weights) {
+            if (w == null || !e.isWeighted() || w.equals(e.getWeight())) return true;
+        }
+        return false;
+    }
+
+    private static long key(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+
+    private static List<Edge> sorted(List<Edge> edges) {
+        for (int i = 1; i < edges.size(); i++) {
+            if (edges.get(i - 1).compareTo(edges.get(i)) > 0) {
+                List<Edge> copy = new ArrayList<>(edges);
+                copy.sort(null);
+                return copy;
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Appends an edge the way {@link Edge#toString()} prints it.
+     */
+    private void edge(Edge e) throws IOException {
+        append(e.from().getId()).append(e.from().getGraph() instanceof UndirectedGraph ? " -- " : " -> ").append(e.to().getId());
+        if (e.isWeighted()) append(" [label=").append(e.getWeight()).append(", len=").append(e.getWeight()).append("]");
+        if (e.getColor() != null) append(" [color=").append(e.getColor()).append(", fontcolor=").append(e.getColor()).append("]");
+    }
+
+    private DotWriter append(String s) throws IOException {
+        for (int i = 0; i < s.length(); ) {
+            if (length == buffer.length) drain();
+            int count = Math.min(buffer.length - length, s.length() - i);
+            s.getChars(i, i + count, buffer, length);
+            length += count;
+            i += count;
+        }
+        return this;
+    }
+
+    /**
+     * Appends the decimal digits of an integer without creating a String.
+     */
+    private DotWriter append(int value) throws IOException {
+        if (value == Integer.MIN_VALUE) return append(Integer.toString(value));
+        if (length + 11 > buffer.length) drain();
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int end = length + digits(value);
+        for (int i = end - 1; i >= length; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length = end;
+        return this;
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+}
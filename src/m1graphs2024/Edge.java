@@ -42,6 +42,19 @@ public class Edge implements Comparable<Edge> {
         this.weight = weight;
     }
 
+    /**
+     * Constructs a weighted and coloured edge between two nodes in the same graph.
+     *
+     * @param from   the source node
+     * @param to     the destination node
+     * @param weight the weight of the edge
+     * @param color  the colour of the edge, or null
+     */
+    public Edge(Node from, Node to, Integer weight, String color) {
+        this(from, to, weight);
+        this.color = color;
+    }
+
     /**
      * Constructs an unweighted edge between two nodes in the same graph, identified by their IDs.
      *
@@ -104,6 +117,18 @@ public class Edge implements Comparable<Edge> {
         return new Edge(to, from, weight);
     }
 
+    /**
+     * Checks if this edge is equal to the symmetric of another one, as {@code equals(e.getSymmetric())}
+     * would tell, without building the symmetric edge.
+     *
+     * @param e the other edge
+     * @return true if this edge goes the other way between the same nodes, with the same weight
+     */
+    boolean isSymmetricOf(Edge e) {
+        if (isWeighted() && e.isWeighted() && !weight.equals(e.weight)) return false;
+        return Objects.equals(from, e.to) && Objects.equals(to, e.from);
+    }
+
     /**
      * Checks if the edge is a self-loop (i.e., the source and destination nodes are the same).
      *
@@ -120,8 +145,8 @@ public class Edge implements Comparable<Edge> {
      */
     public boolean isMultiEdge() {
         Graph curGraph = from.getGraph();
-        for (Edge e : curGraph.getOutEdges(from)) {
-            if (e != this && e.to().equals(to)) return true;
+        for (Edge e : curGraph.getEdges(from, to)) {
+            if (e != this) return true;
         }
         return false;
     }
@@ -135,8 +160,8 @@ public class Edge implements Comparable<Edge> {
         List<Edge> edges = new ArrayList<>();
         if (!isMultiEdge()) return null;
         Graph curGraph = from.getGraph();
-        for (Edge e : curGraph.getOutEdges(from)) {
-            if (!e.equals(this) && e.to().equals(to)) edges.add(e);
+        for (Edge e : curGraph.getEdges(from, to)) {
+            if (!e.equals(this)) edges.add(e);
         }
         return edges;
     }
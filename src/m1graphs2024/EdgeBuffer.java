@@ -0,0 +1,241 @@
+package m1graphs2024;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Growable list of edges kept in primitive arrays (source ids, target ids, weights and colour
+ * indexes), together with the ids of the nodes declared on their own. It collects the output of a
+ * {@link DotParser} without creating any Node or Edge, and can later be copied into a graph.
+ * @author Johan Barçon
+ */
+public class EdgeBuffer implements DotParser.Handler {
+    private int size = 0;
+    private int[] from;
+    private int[] to;
+    private int[] weight;
+    private int[] color;
+    private int nbNodes = 0;
+    private int[] nodes = new int[16];
+    private int[] nodeRank = new int[16];
+    private final List<String> colors = new ArrayList<>();
+    private final Map<String, Integer> colorIndex = new HashMap<>();
+
+    /**
+     * Creates an empty buffer.
+     */
+    public EdgeBuffer() {
+        this(1024);
+    }
+
+    /**
+     * Creates an empty buffer able to hold the given number of edges before growing.
+     * @param capacity the initial capacity
+     */
+    public EdgeBuffer(int capacity) {
+        capacity = Math.max(16, capacity);
+        from = new int[capacity];
+        to = new int[capacity];
+        weight = new int[capacity];
+        color = new int[capacity];
+    }
+
+    @Override
+    public void node(int id) {
+        addNode(id, size);
+    }
+
+    private void addNode(int id, int rank) {
+        if (nbNodes == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * nbNodes);
+            nodeRank = Arrays.copyOf(nodeRank, 2 * nbNodes);
+        }
+        nodes[nbNodes] = id;
+        nodeRank[nbNodes] = rank;
+        nbNodes++;
+    }
+
+    @Override
+    public void edge(int from, int to, int weight, String color) {
+        add(from, to, weight, color == null ? -1 : colorIndex(color));
+    }
+
+    private void add(int u, int v, int w, int c) {
+        if (size == from.length) {
+            int capacity = 2 * size;
+            from = Arrays.copyOf(from, capacity);
+            to = Arrays.copyOf(to, capacity);
+            weight = Arrays.copyOf(weight, capacity);
+            color = Arrays.copyOf(color, capacity);
+        }
+        from[size] = u;
+        to[size] = v;
+        weight[size] = w;
+        color[size] = c;
+        size++;
+    }
+
+    private int colorIndex(String c) {
+        Integer index = colorIndex.get(c);
+        if (index == null) {
+            index = colors.size();
+            colors.add(c);
+            colorIndex.put(c, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of edges in the buffer.
+     * @return the number of edges
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the source id of an edge.
+     * @param i the position of the edge
+     * @return the id of the source node
+     */
+    public int from(int i) {
+        return from[i];
+    }
+
+    /**
+     * Returns the target id of an edge.
+     * @param i the position of the edge
+     * @return the id of the target node
+     */
+    public int to(int i) {
+        return to[i];
+    }
+
+    /**
+     * Returns the weight of an edge.
+     * @param i the position of the edge
+     * @return the weight, or {@link DotParser#NO_WEIGHT}
+     */
+    public int weight(int i) {
+        return weight[i];
+    }
+
+    /**
+     * Returns the colour index of an edge.
+     * @param i the position of the edge
+     * @return the index of the colour in {@link #getColors()}, or -1
+     */
+    public int colorIndex(int i) {
+        return color[i];
+    }
+
+    /**
+     * Returns the colour of an edge.
+     * @param i the position of the edge
+     * @return the colour, or null
+     */
+    public String color(int i) {
+        return color[i] == -1 ? null : colors.get(color[i]);
+    }
+
+    /**
+     * Returns the dictionary of the colours used by the edges.
+     * @return the list of the colours, indexed by colour index
+     */
+    public List<String> getColors() {
+        return colors;
+    }
+
+    /**
+     * Returns the number of nodes declared on their own.
+     * @return the number of node statements
+     */
+    public int nbNodes() {
+        return nbNodes;
+    }
+
+    /**
+     * Returns the id of a node declared on its own.
+     * @param i the position of the node statement
+     * @return the id of the node
+     */
+    public int nodeId(int i) {
+        return nodes[i];
+    }
+
+    /**
+     * Appends all the edges and nodes of another buffer at the end of this one.
+     * @param other the buffer to append
+     */
+    public void append(EdgeBuffer other) {
+        int offset = size;
+        int[] remap = new int[other.colors.size()];
+        for (int c = 0; c < remap.length; c++) remap[c] = colorIndex(other.colors.get(c));
+        for (int i = 0; i < other.size; i++) {
+            add(other.from[i], other.to[i], other.weight[i], other.color[i] == -1 ? -1 : remap[other.color[i]]);
+        }
+        for (int i = 0; i < other.nbNodes; i++) addNode(other.nodes[i], offset + other.nodeRank[i]);
+    }
+
+    /**
+     * Copies the nodes and edges of the buffer into a graph in the order they were read, each edge
+     * being stored once from its source node like {@link Graph#fromDotFile(String)} does.
+     * @param graph the graph to fill
+     * @param <G> the type of the graph
+     * @return the graph given
+     */
+    public <G extends Graph> G fill(G graph) {
+        return fill(graph, null);
+    }
+
+    /**
+     * Copies the nodes and edges of the buffer into a graph in the order they were read, leaving
+     * some edges out.
+     * @param graph the graph to fill
+     * @param skipped the edges to leave out, by index, or null to copy every edge
+     * @param <G> the type of the graph
+     * @return the graph given
+     */
+    <G extends Graph> G fill(G graph, boolean[] skipped) {
+        GraphBuilder builder = new GraphBuilder(graph);
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            while (n < nbNodes && nodeRank[n] == i) builder.node(nodes[n++]);
+            if (skipped == null || !skipped[i]) builder.edge(from[i], to[i], weight[i], color(i));
+        }
+        while (n < nbNodes) builder.node(nodes[n++]);
+        return graph;
+    }
+
+    /**
+     * Finds the edges that mirror an earlier one: same weight and colour, opposite direction
+     * between two distinct nodes. Each earlier edge is matched at most once, so that an undirected
+     * edge written as two opposite arcs is found once, while an arc listed in one direction only
+     * is never taken as a mirror. Edges are grouped by their pair of nodes through a hash map,
+     * each one only being compared with the edges between the same two nodes.
+     * @return for each edge, by index, whether it is the later arc of a mirrored pair
+     */
+    boolean[] mirrors() {
+        boolean[] later = new boolean[size];
+        boolean[] matched = new boolean[size];
+        int[] previous = new int[size];
+        LongIntMap last = new LongIntMap(size);
+        for (int i = 0; i < size; i++) {
+            if (from[i] == to[i]) continue;
+            long key = ((long) Math.min(from[i], to[i]) << 32) | (Math.max(from[i], to[i]) & 0xffffffffL);
+            previous[i] = last.put(key, i);
+            for (int j = previous[i]; j != -1; j = previous[j]) {
+                if (!matched[j] && !later[j] && from[j] == to[i] && to[j] == from[i]
+                        && weight[j] == weight[i] && colorIndex(j) == colorIndex(i)) {
+                    matched[j] = true;
+                    later[i] = true;
+                    break;
+                }
+            }
+        }
+        return later;
+    }
+}
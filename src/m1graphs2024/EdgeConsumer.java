@@ -0,0 +1,21 @@
+package m1graphs2024;
+
+/**
+ * Action applied to the edges visited by {@link Graph#forEachOutEdge(Node, EdgeConsumer)},
+ * {@link Graph#forEachInEdge(Node, EdgeConsumer)} and {@link Graph#forEachIncident(Node, EdgeConsumer)},
+ * which hand the stored edges over one at a time instead of building a list.
+ * @author Johan Barçon
+ */
+@FunctionalInterface
+public interface EdgeConsumer {
+    /**
+     * Action that does nothing, for when only the number of edges visited matters.
+     */
+    EdgeConsumer NONE = e -> { };
+
+    /**
+     * Applies the action to an edge.
+     * @param e the edge visited
+     */
+    void accept(Edge e);
+}
@@ -0,0 +1,276 @@
+package m1graphs2024;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Streaming parser for the line-based edge list formats used by road network data, handing nodes
+ * and edges to a {@link DotParser.Handler} like {@link DotParser} does:
+ * <ul>
+ *     <li>{@link Format#DIMACS}: the shortest path format of the DIMACS challenge ({@code .gr}),
+ *     made of comment lines {@code c ...}, one problem line {@code p sp n m} declaring the nodes
+ *     1 to n, and arc lines {@code a u v w};</li>
+ *     <li>{@link Format#CSV}: one edge {@code u,v} or {@code u,v,w} per line, separated by commas,
+ *     semicolons or tabulations, after an optional header line. Extra columns are ignored.</li>
+ * </ul>
+ * The input is read from a large byte buffer, numbers being decoded in place. Node ids are ints,
+ * unless the parser is given a {@link NodeIdMapping}: ids are then read as longs, whatever their
+ * sign or range, and handed to the handler as the dense ids they are mapped to.
+ * @author Johan Barçon
+ */
+public class EdgeListParser {
+    /**
+     * Supported edge list formats.
+     */
+    public enum Format {
+        DIMACS, CSV;
+
+        /**
+         * Guesses the format of a file from its extension: {@code .gr} or {@code .gr.gz} for
+         * DIMACS, CSV otherwise.
+         * @param path the path of the file
+         * @return the format of the file
+         */
+        public static Format of(Path path) {
+            String name = path.getFileName().toString().toLowerCase();
+            return name.endsWith(".gr") || name.endsWith(".gr.gz") ? DIMACS : CSV;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    private final Format format;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private long line = 1;
+    private Path path;
+    private NodeIdMapping ids;
+
+    /**
+     * Creates a parser reading a channel.
+     * @param channel the channel to read
+     * @param format the format of the input
+     */
+    public EdgeListParser(ReadableByteChannel channel, Format format) {
+        this.channel = channel;
+        this.format = format;
+    }
+
+    /**
+     * Parses a whole file, its format being guessed from its extension.
+     * @param path the path of the file
+     * @param handler the handler receiving nodes and edges
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static void parse(Path path, DotParser.Handler handler) throws IOException {
+        parse(path, Format.of(path), handler);
+    }
+
+    /**
+     * Parses a whole file, gzipped or not, see {@link GraphFiles#openInput(Path)}.
+     * @param path the path of the file
+     * @param format the format of the file
+     * @param handler the handler receiving nodes and edges
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static void parse(Path path, Format format, DotParser.Handler handler) throws IOException {
+        parse(path, format, null, handler);
+    }
+
+    /**
+     * Parses a whole file whose node ids are arbitrary longs, gzipped or not.
+     * @param path the path of the file
+     * @param format the format of the file
+     * @param ids the mapping giving the dense id of every node id read, null for int ids
+     * @param handler the handler receiving nodes and edges, with dense ids
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static void parse(Path path, Format format, NodeIdMapping ids, DotParser.Handler handler) throws IOException {
+        try (ReadableByteChannel channel = GraphFiles.openInput(path)) {
+            EdgeListParser parser = new EdgeListParser(channel, format);
+            parser.path = path;
+            parser.ids = ids;
+            parser.parse(handler);
+        }
+    }
+
+    /**
+     * Parses the input until its end, mapping its node ids.
+     * @param handler the handler receiving nodes and edges, with dense ids
+     * @param ids the mapping giving the dense id of every node id read
+     * @throws IOException if the input cannot be read or is malformed
+     */
+    public void parse(DotParser.Handler handler, NodeIdMapping ids) throws IOException {
+        this.ids = ids;
+        parse(handler);
+    }
+
+    /**
+     * Parses the input until its end.
+     * @param handler the handler receiving nodes and edges
+     * @throws IOException if the input cannot be read or is malformed
+     */
+    public void parse(DotParser.Handler handler) throws IOException {
+        if (format == Format.DIMACS) dimacs(handler);
+        else csv(handler);
+    }
+
+    private void dimacs(DotParser.Handler handler) throws IOException {
+        int c;
+        while ((c = skipSpaces()) != -1) {
+            if (c == 'a') {
+                next();
+                int from = readId();
+                int to = readId();
+                int weight = readInt();
+                handler.edge(from, to, weight, null);
+            } else if (c == 'p') {
+                next();
+                skipSpaces();
+                while ((c = peek()) != -1 && c > ' ') next();
+                int n = readInt();
+                readInt();
+                for (int id = 1; id <= n; id++) handler.node(ids == null ? id : ids.internalId(id));
+            } else if (c != '\n' && c != 'c' && c != 'n') {
+                throw malformed();
+            }
+            skipLine();
+        }
+    }
+
+    private void csv(DotParser.Handler handler) throws IOException {
+        int c;
+        boolean first = true;
+        while ((c = skipSpaces()) != -1) {
+            if (c == '\n' || c == '#') {
+                skipLine();
+                continue;
+            }
+            if (first && !isDigit(c)) {
+                first = false;
+                skipLine();
+                continue;
+            }
+            first = false;
+            int from = readId();
+            separator();
+            int to = readId();
+            int weight = DotParser.NO_WEIGHT;
+            c = skipSpaces();
+            if (c == ',' || c == ';' || c == '\t') {
+                next();
+                c = skipSpaces();
+                if (isDigit(c) || c == '-') weight = readInt();
+            }
+            handler.edge(from, to, weight, null);
+            skipLine();
+        }
+    }
+
+    private void separator() throws IOException {
+        int c = skipSpaces();
+        if (c != ',' && c != ';' && c != '\t') throw malformed();
+        next();
+    }
+
+    /**
+     * Reads a node id, as an int or as a long mapped to its dense id.
+     */
+    private int readId() throws IOException {
+        return ids == null ? readInt() : ids.internalId(readLong());
+    }
+
+    /**
+     * Reads a possibly negative long, skipping the spaces before it.
+     */
+    private long readLong() throws IOException {
+        int c = skipSpaces();
+        boolean negative = c == '-';
+        if (negative) {
+            next();
+            c = peek();
+        }
+        if (!isDigit(c)) throw malformed();
+        long result = 0;
+        while ((c = peek()) != -1 && isDigit(c)) {
+            if (result < (Long.MIN_VALUE + (c - '0')) / 10) throw malformed();
+            result = 10 * result - (c - '0');
+            next();
+        }
+        if (!negative && result == Long.MIN_VALUE) throw malformed();
+        return negative ? result : -result;
+    }
+
+    /**
+     * Reads a possibly negative integer, skipping the spaces before it.
+     */
+    private int readInt() throws IOException {
+        int c = skipSpaces();
+        boolean negative = c == '-';
+        if (negative) {
+            next();
+            c = peek();
+        }
+        if (!isDigit(c)) throw malformed();
+        long result = 0;
+        while ((c = peek()) != -1 && isDigit(c)) {
+            result = 10 * result + (c - '0');
+            if (result > Integer.MAX_VALUE + 1L) throw malformed();
+            next();
+        }
+        result = negative ? -result : result;
+        if (result > Integer.MAX_VALUE) throw malformed();
+        return (int) result;
+    }
+
+    /**
+     * Skips spaces, tabulations excepted in CSV where they separate fields, and carriage returns.
+     * @return the next byte, which is not consumed, or -1 at the end of the input
+     */
+    private int skipSpaces() throws IOException {
+        int c;
+        while ((c = peek()) == ' ' || c == '\r' || (c == '\t' && format == Format.DIMACS)) next();
+        return c;
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = next()) != -1 && c != '\n') {
+            // skip
+        }
+        line++;
+    }
+
+    private IOException malformed() {
+        return new IOException("Malformed " + format + " line " + line + (path == null ? "" : " in " + path));
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return bytes[position] & 0xff;
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return bytes[position++] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        position = 0;
+        limit = buffer.position();
+        return limit > 0;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+}
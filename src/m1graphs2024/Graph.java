@@ -1,9 +1,11 @@
 package m1graphs2024;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
@@ -16,9 +18,21 @@ import java.util.List;
  * @author Johan Barçon
  */
 public class Graph {
+    /**
+     * Number of arcs above which {@link #isDisconnectedGraph()} searches the graph in parallel.
+     */
+    static final int PARALLEL_BFS_ARCS = 1 << 20;
+
     private Map<Node, List<Edge>> adjEgList;
     private String name;
     protected String label;
+    private UnionFind components;
+    private Map<Node, List<Edge>> inEgList;
+    private AdjacencyView adjacencyView;
+    private CsrGraph reachability;
+    private List<Node> reachabilityNodes;
+    private BitSet reached;
+    private int[] reachabilityQueue;
 
     // Constructors
     /**
@@ -70,10 +84,22 @@ public class Graph {
     }
 
     /**
-     * Retrieves the adjacency list representation of the graph.
+     * Retrieves the adjacency list representation of the graph. The map and its lists are views of
+     * those of the graph, not copies: writing to them changes the graph, and drops the index of
+     * incoming edges and the union-find of the components, to be built again on the next query.
      * @return a map of nodes to their respective edge lists
      */
     public Map<Node, List<Edge>> getAdjEgList() {
+        if (adjacencyView == null) adjacencyView = new AdjacencyView(adjEgList, this::edgesChanged);
+        return adjacencyView;
+    }
+
+    /**
+     * Retrieves the adjacency list representation of the graph for reading, keeping the index of
+     * incoming edges.
+     * @return a map of nodes to their respective edge lists
+     */
+    Map<Node, List<Edge>> adjacency() {
         return adjEgList;
     }
 
@@ -174,6 +200,8 @@ public class Graph {
     public boolean addNode(Node n) {
         if (holdsNode(n)) return false;
         adjEgList.put(n, new ArrayList<Edge>());
+        reachability = null;
+        if (components != null) components.add(n.getId());
         return holdsNode(n);
     }
 
@@ -201,6 +229,9 @@ public class Graph {
             if (in.isEmpty()) break;
         }
         adjEgList.remove(n);
+        components = null;
+        inEgList = null;
+        reachability = null;
         return true;
     }
 
@@ -251,14 +282,24 @@ public class Graph {
      * @return a sorted list of successor nodes
      */
     public List<Node> getSuccessors(Node n) {
-        List<Edge> edges = getOutEdges(n.getId());
-        Set<Node> successors = new HashSet<>();
-        for (Edge e : edges) {
-            successors.add(e.to());
+        List<Node> successors = new ArrayList<>();
+        forEachOutEdge(n.getGraph() == this ? n : getNode(n.getId()), e -> successors.add(e.to()));
+        return sortedDistinct(successors);
+    }
+
+    /**
+     * Sorts a list of nodes and removes its duplicates in place.
+     * @param nodes the nodes
+     * @return the list given
+     */
+    static List<Node> sortedDistinct(List<Node> nodes) {
+        Collections.sort(nodes);
+        int size = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            if (size == 0 || !nodes.get(i).equals(nodes.get(size - 1))) nodes.set(size++, nodes.get(i));
         }
-        List<Node> res = new ArrayList<>(successors);
-        Collections.sort(res);
-        return res;
+        nodes.subList(size, nodes.size()).clear();
+        return nodes;
     }
 
     /**
@@ -276,11 +317,8 @@ public class Graph {
      * @return a list of successor nodes, with possible duplicates
      */
     public List<Node> getSuccessorsMulti(Node n) {
-        List<Edge> edges = getOutEdges(n);
         List<Node> successors = new ArrayList<>();
-        for (Edge e : edges) {
-            successors.add(e.to());
-        }
+        forEachOutEdge(n, e -> successors.add(e.to()));
         return successors;
     }
 
@@ -294,31 +332,56 @@ public class Graph {
     }
 
     /**
-     * Retrieves all the descendents of a node
+     * Retrieves all the descendents of a node, that is the nodes reachable from it through at least
+     * one edge, computed by a single breadth-first search in a snapshot of the graph kept from one
+     * call to the next until the graph changes, see {@link CsrGraph#descendants(int, BitSet)}.
      * @param n the source node
-     * @return a list of all the descendents nodes
+     * @return a list of all the descendents nodes, in increasing ID order
      */
     public List<Node> getDescendents(Node n) {
-        Set<Node> descendents = new HashSet<>(getSuccessors(n));
-        descendents.remove(n);
-        descendents.addAll(getDescendents(descendents));
-        return new ArrayList<Node>(descendents);
+        CsrGraph snapshot = reachability();
+        int source = snapshot.indexOf(n.getId());
+        List<Node> descendents = new ArrayList<Node>();
+        if (source < 0) return descendents;
+        snapshot.descendants(source, reached, reachabilityQueue);
+        for (int i = reached.nextSetBit(0); i >= 0; i = reached.nextSetBit(i + 1)) descendents.add(reachabilityNodes.get(i));
+        return descendents;
     }
 
     /**
-     * Retrieves all the descendents of a list of nodes
+     * Retrieves all the descendents of a list of nodes, the nodes themselves included, computed by a
+     * single breadth-first search from all of them at once in the snapshot searched by
+     * {@link #getDescendents(Node)}, see {@link CsrGraph#reachable(int[], BitSet)}.
      * @param n a list of source nodes
      * @return a list of all the descendents of the node list
      */
     public Set<Node> getDescendents(Set<Node> n) {
-        Set<Node> descendents = new HashSet<>(n);
-        Set<Node> curr = new HashSet<>();
+        CsrGraph snapshot = reachability();
+        int[] sources = new int[n.size()];
+        int count = 0;
         for (Node node : n) {
-            curr.addAll(getSuccessors(node));
+            int source = snapshot.indexOf(node.getId());
+            if (source >= 0) sources[count++] = source;
         }
-        if (descendents.containsAll(curr)) return descendents;
-        descendents.addAll(curr);
-        return getDescendents(descendents);
+        snapshot.reachable(Arrays.copyOf(sources, count), reached, reachabilityQueue);
+        Set<Node> descendents = new HashSet<>(n);
+        for (int i = reached.nextSetBit(0); i >= 0; i = reached.nextSetBit(i + 1)) descendents.add(reachabilityNodes.get(i));
+        return descendents;
+    }
+
+    /**
+     * Retrieves the snapshot searched by {@link #getDescendents(Node)}, built on the first search
+     * after a change of the graph and kept, with the set and queue of the search, until the next one.
+     * @return the snapshot of the graph
+     */
+    private CsrGraph reachability() {
+        if (reachability == null) {
+            reachabilityNodes = getAllNodes();
+            reachability = CsrGraph.of(this, reachabilityNodes, getAllEdges());
+            reached = new BitSet(reachabilityNodes.size());
+            reachabilityQueue = new int[reachability.nbNodes()];
+        }
+        return reachability;
     }
 
     /**
@@ -335,9 +398,14 @@ public class Graph {
      * @return true if nodes u and v are adjacent, false otherwise
      */
     public boolean adjacent(Node u, Node v) {
-        List<Edge> edges = getIncidentEdges(u);
-        for (Edge e : edges) {
-            if (e.to().equals(v) || e.from().equals(v)) return true;
+        List<Edge> out = adjEgList.get(u);
+        if (out == null) return false;
+        for (int i = 0; i < out.size(); i++) {
+            if (out.get(i).to().equals(v) || out.get(i).from().equals(v)) return true;
+        }
+        List<Edge> in = inEdges(u);
+        for (int i = 0; i < in.size(); i++) {
+            if (in.get(i).from().equals(v) || in.get(i).to().equals(v)) return true;
         }
         return false;
     }
@@ -358,7 +426,7 @@ public class Graph {
      * @return the in-degree of the node
      */
     public int inDegree(Node n) {
-        return getInEdges(n).size();
+        return forEachInEdge(n, EdgeConsumer.NONE);
     }
 
     /**
@@ -375,7 +443,7 @@ public class Graph {
      * @return the out-degree of the node
      */
     public int outDegree(Node n) {
-        return getOutEdges(n).size();
+        return forEachOutEdge(n, EdgeConsumer.NONE);
     }
 
     /**
@@ -393,7 +461,7 @@ public class Graph {
      * @return the total degree of the node
      */
     public int degree(Node n) {
-        return getIncidentEdges(n).size();
+        return forEachIncident(n, EdgeConsumer.NONE);
     }
 
     /**
@@ -516,6 +584,19 @@ public class Graph {
         if (!adjEgList.containsKey(e.from())) adjEgList.put(e.from(), new ArrayList<>());
         if (!adjEgList.containsKey(e.to())) adjEgList.put(e.to(), new ArrayList<>());
         adjEgList.get(e.from()).add(e);
+        reachability = null;
+        if (components != null) components.union(e.from().getId(), e.to().getId());
+        if (inEgList != null) {
+            List<Edge> in = inEgList.computeIfAbsent(e.to(), k -> new ArrayList<>());
+            int low = 0;
+            int high = in.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (in.get(mid).from().getId() <= e.from().getId()) low = mid + 1;
+                else high = mid;
+            }
+            in.add(low, e);
+        }
     }
 
     /**
@@ -573,15 +654,44 @@ public class Graph {
      * @param e the edge to remove
      * @return true if the edge was removed, false otherwise
      */
-    public boolean removeEdge(Edge e) { return adjEgList.get(e.from()).remove(e);}
+    public boolean removeEdge(Edge e) {
+        List<Edge> out = adjEgList.get(e.from());
+        int index = out.indexOf(e);
+        if (index < 0) return false;
+        Edge removed = out.remove(index);
+        components = null;
+        reachability = null;
+        if (inEgList != null) {
+            List<Edge> in = inEgList.get(removed.to());
+            for (int i = 0; i < in.size(); i++) {
+                if (in.get(i) == removed) {
+                    in.remove(i);
+                    break;
+                }
+            }
+        }
+        return true;
+    }
 
     /**
-     * Retrieves a list of all outgoing edges from a specified node.
+     * Retrieves a list of all outgoing edges from a specified node. The list is a view of that of
+     * the graph, not a copy: as for {@link #getAdjEgList()}, writing to it changes the graph.
      * @param n the node for which to retrieve outgoing edges
      * @return a list of outgoing edges, or an empty list if no edges exist
      */
     public List<Edge> getOutEdges(Node n) {
-        return adjEgList.get(n) == null ? new ArrayList<>() : adjEgList.get(n);
+        List<Edge> out = adjEgList.get(n);
+        return out == null ? new ArrayList<>() : AdjacencyView.of(out, this::edgesChanged);
+    }
+
+    /**
+     * Drops what is derived from the edges, before they are changed through the lists handed out by
+     * {@link #getAdjEgList()} or {@link #getOutEdges(Node)}.
+     */
+    private void edgesChanged() {
+        inEgList = null;
+        components = null;
+        reachability = null;
     }
 
     /**
@@ -597,11 +707,7 @@ public class Graph {
      * @return a list of incoming edges
      */
     public List<Edge> getInEdges(Node n) {
-        List<Edge> inEdges = new ArrayList<>();
-        for (Edge edge : getAllEdges()) {
-            if (edge.to().equals(n)) inEdges.add(edge);
-        }
-        return inEdges;
+        return new ArrayList<>(inEdges(n));
     }
 
     /**
@@ -618,9 +724,8 @@ public class Graph {
      */
     public List<Edge> getIncidentEdges(Node n) {
         List<Edge> incidentEdges = new ArrayList<>();
-        for (Edge edge : getAllEdges()) {
-            if (edge.from().equals(n) || edge.to().equals(n)) incidentEdges.add(edge);
-        }
+        forEachIncident(n, incidentEdges::add);
+        Collections.sort(incidentEdges);
         return incidentEdges;
     }
 
@@ -631,6 +736,77 @@ public class Graph {
      */
     public List<Edge> getIncidentEdges(int nId) { return getIncidentEdges(getNode(nId));}
 
+    /**
+     * Visits the outgoing edges of a node in the order of {@link #getOutEdges(Node)}, without
+     * building any list.
+     * @param n the node
+     * @param action the action applied to each edge
+     * @return the number of edges visited, 0 if the node is not in the graph
+     */
+    public int forEachOutEdge(Node n, EdgeConsumer action) {
+        List<Edge> out = adjEgList.get(n);
+        if (out == null) return 0;
+        for (int i = 0; i < out.size(); i++) action.accept(out.get(i));
+        return out.size();
+    }
+
+    /**
+     * Visits the incoming edges of a node in the order of {@link #getInEdges(Node)}, by increasing
+     * source id, without building any list. The incoming edges of every node are indexed on the
+     * first call, then kept up to date as edges are added and removed.
+     * @param n the node
+     * @param action the action applied to each edge
+     * @return the number of edges visited, 0 if the node is not in the graph
+     */
+    public int forEachInEdge(Node n, EdgeConsumer action) {
+        List<Edge> in = inEdges(n);
+        for (int i = 0; i < in.size(); i++) action.accept(in.get(i));
+        return in.size();
+    }
+
+    /**
+     * Visits the edges incident to a node without building any list: the outgoing edges, then the
+     * incoming edges that are not self-loops, so that a self-loop is visited once.
+     * @param n the node
+     * @param action the action applied to each edge
+     * @return the number of edges visited, 0 if the node is not in the graph
+     */
+    public int forEachIncident(Node n, EdgeConsumer action) {
+        int count = forEachOutEdge(n, action);
+        List<Edge> in = inEdges(n);
+        for (int i = 0; i < in.size(); i++) {
+            Edge e = in.get(i);
+            if (!e.isSelfLoop()) {
+                action.accept(e);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves the incoming edges of a node, by increasing source id and in the order of the
+     * adjacency list of each source. The list is that of the index, not a copy. The index holds a
+     * second reference to every edge; it is built on the first call and kept up to date by
+     * {@link #addEdge(Edge)} and {@link #removeEdge(Edge)}, and dropped when the edges are changed
+     * through the lists handed out by {@link #getAdjEgList()} or {@link #getOutEdges(Node)}.
+     * @param n the node
+     * @return the incoming edges, an empty list if the node is not in the graph
+     */
+    List<Edge> inEdges(Node n) {
+        if (inEgList == null) {
+            Map<Node, List<Edge>> in = new HashMap<>();
+            List<Node> nodes = getAllNodes();
+            for (Node u : nodes) in.put(u, new ArrayList<>());
+            for (Node u : nodes) {
+                for (Edge e : adjEgList.get(u)) in.computeIfAbsent(e.to(), k -> new ArrayList<>()).add(e);
+            }
+            inEgList = in;
+        }
+        List<Edge> in = inEgList.get(n);
+        return in == null ? Collections.emptyList() : in;
+    }
+
     /**
      * Retrieves a list of all edges between two specified nodes.
      * @param u the source node
@@ -639,11 +815,9 @@ public class Graph {
      */
     public List<Edge> getEdges(Node u, Node v) {
         List<Edge> edges = new ArrayList<>();
-        List<Edge> edges1 = getOutEdges(u);
-        if (edges1 == null) return edges;
-        for (Edge edge : edges1) {
+        forEachOutEdge(u, edge -> {
             if (edge.to().equals(v)) edges.add(edge);
-        }
+        });
         return edges;
     }
 
@@ -684,34 +858,68 @@ public class Graph {
 
 //  FOR REPRESENTATION & TRANSFORMATION
     /**
-     * Converts the graph to a successor array representation.
+     * Converts the graph to a successor array representation, the format read by {@link #Graph(int...)}:
+     * for every ID from 1 to the largest node ID, the IDs of the successors of the node followed by a 0,
+     * an ID without node giving an empty list. The neighbours of a node of an undirected graph are its
+     * successors, a self-loop being listed once.
      * @return an integer array representing the graph's successor relationships
      */
     public int[] toSuccessorArray() {
+        CsrGraph snapshot = CsrGraph.of(this);
+        int n = snapshot.nbNodes();
+        int largestId = n == 0 ? 0 : snapshot.nodeId(n - 1);
+        int[] result = new int[largestId + snapshot.nbArcs()];
         int index = 0;
-        List<Edge> edges = getAllEdges();
-        int[] result = new int[getAllNodes().size() + edges.size()];
-        for (int i = 1; i <= nbNodes(); i++) {
-            for (Edge edge : getOutEdges(i)) {
-                if (edges.contains(edge)) result[index++] = edge.to().getId();
+        for (int i = 0, id = 1; id <= largestId; id++) {
+            if (i < n && snapshot.nodeId(i) == id) {
+                for (int a = snapshot.offset(i); a < snapshot.offset(i + 1); a++) {
+                    int v = snapshot.target(a);
+                    if (v != i || snapshot.isPrimary(i, a)) result[index++] = snapshot.nodeId(v);
+                }
+                i++;
             }
-            index++;
+            result[index++] = 0;
         }
-        return result;
+        return index == result.length ? result : Arrays.copyOf(result, index);
     }
 
     /**
-     * Converts the graph to an adjacency matrix representation.
+     * Converts the graph to an adjacency matrix representation. Rows and columns are indexed by
+     * the rank of the nodes in increasing ID order, which is {@code id - 1} when the IDs go from 1
+     * to the number of nodes.
      * @return a 2D integer array representing the adjacency matrix, with elements
      * indicating the number of edges between nodes
      */
     public int[][] toAdjMatrix() {
-        int countNodes = nbNodes();
-        int[][] matrix = new int[countNodes][countNodes];
-        for (Edge e : getAllEdges()) {
-            matrix[e.from().getId() - 1][e.to().getId() - 1]++;
-        }
-        return matrix;
+        return toSparseAdjacency().toDense();
+    }
+
+    /**
+     * Converts the graph to a sparse adjacency matrix, holding only the pairs of nodes linked by
+     * at least one edge with the number of such edges.
+     * @return the adjacency matrix in compressed sparse row form
+     */
+    public SparseAdjacency toSparseAdjacency() {
+        return SparseAdjacency.of(CsrGraph.of(this));
+    }
+
+    /**
+     * Converts the graph to a boolean adjacency matrix packed 64 entries per word, indexed like
+     * {@link #toAdjMatrix()}.
+     * @return the bit-packed adjacency matrix
+     */
+    public BitMatrix toBitMatrix() {
+        return toSparseAdjacency().toBitMatrix();
+    }
+
+    /**
+     * Converts the adjacency lists of the graph to a read-only compressed form, targets being
+     * gap-encoded as variable-length integers, for graphs too large to keep in memory otherwise.
+     * Nodes are indexed like in {@link #toSparseAdjacency()}.
+     * @return the compressed adjacency
+     */
+    public CompressedAdjacency toCompressedAdjacency() {
+        return CompressedAdjacency.of(CsrGraph.of(this));
     }
 
     /**
@@ -732,23 +940,32 @@ public class Graph {
     /**
      * Computes the transitive closure of the current graph, which adds edges
      * to ensure that there is a direct path between any reachable nodes.
+     * The pairs to link are read from a {@link ReachabilityMatrix} of the simple graph.
      * @return a new Graph instance representing the transitive closure of this graph
      */
     public Graph getTransitiveClosure() {
         Graph trans = toSimpleGraph();
-        Edge newEdge;
-        for (Node n : trans.getAllNodes()) {
-            for (Edge p : trans.getInEdges(n)) {
-                for (Edge s : trans.getOutEdges(n)) {
-                    newEdge = new Edge(p.from().getId(), s.to().getId(), trans);
-                    if (newEdge.isSelfLoop() || trans.existsEdge(newEdge)) continue;
-                    trans.addEdge(newEdge);
-                }
-            }
-        }
+        closeTransitively(trans);
         return trans;
     }
 
+    /**
+     * Adds to a graph the edges of its transitive closure that it does not hold yet.
+     * @param trans the graph to close
+     */
+    static void closeTransitively(Graph trans) {
+        CsrGraph snapshot = CsrGraph.of(trans);
+        ReachabilityMatrix.of(snapshot).addMissingEdges(trans, snapshot);
+    }
+
+    /**
+     * Computes which nodes reach which nodes, without building the transitive closure as a graph.
+     * @return the reachability matrix of the graph
+     */
+    public ReachabilityMatrix getReachabilityMatrix() {
+        return ReachabilityMatrix.of(CsrGraph.of(this));
+    }
+
     /**
      * Checks if the graph contains at least one multi-edge (multiple edges between any two nodes).
      * @return true if the graph is a multigraph, false otherwise
@@ -776,20 +993,76 @@ public class Graph {
     }
 
     /**
-     * Checks if the graph is disconnected.
+     * Checks if the graph is disconnected, that is if some edge cannot be reached from the node with
+     * the smallest ID. The answer comes from the union-find of the graph when it is enough: always
+     * for an undirected graph, only when two weak components hold edges for a directed one.
+     * Otherwise the nodes reached are found by a single breadth-first search, run in parallel by
+     * {@link ParallelBreadthFirstSearch} once the graph has more than {@value #PARALLEL_BFS_ARCS} arcs.
      * /!\ this methode consider a graph with only isolated nodes as connected
      * @return true if the graph is disconnected, false otherwise
      */
     public boolean isDisconnectedGraph() {
-        Set<Node> visited = new HashSet<>(getDescendents(smallestNodeId()));
-        visited.add(getNode(smallestNodeId()));
-        for (Node n : getAllNodes()) {
-            if (!visited.contains(n) && n.getIncidentEdges().size() != 0) return true;
+        UnionFind uf = components();
+        if (uf.nbEdgeComponents() > 1) return true;
+        if (uf.nbEdgeComponents() == 0) return false;
+        if (this instanceof UndirectedGraph) return !uf.hasEdges(uf.smallestId());
+        CsrGraph snapshot = CsrGraph.of(this);
+        if (snapshot.nbNodes() == 0) return false;
+        if (snapshot.nbArcs() > PARALLEL_BFS_ARCS) return !new ParallelBreadthFirstSearch(snapshot, 0).reachesAllArcs();
+        BitSet reached = snapshot.reachable(new int[]{0}, new BitSet(snapshot.nbNodes()));
+        for (int i = reached.nextClearBit(0); i < snapshot.nbNodes(); i = reached.nextClearBit(i + 1)) {
+            if (snapshot.degree(i) != 0) return true;
         }
         return false;
     }
 
+    /**
+     * Counts the connected components of the graph, isolated nodes included, ignoring the
+     * direction of the edges. The count is kept up to date while nodes and edges are added.
+     * @return the number of components
+     */
+    public int nbConnectedComponents() {
+        return components().nbComponents();
+    }
 
+    /**
+     * Checks if a path links two nodes, ignoring the direction of the edges.
+     * @param u the first node
+     * @param v the second node
+     * @return true if both nodes are in the graph and in the same component
+     */
+    public boolean areConnected(Node u, Node v) {
+        return u != null && v != null && components().connected(u.getId(), v.getId());
+    }
+
+    /**
+     * Labels every node with its connected component, ignoring the direction of the edges.
+     * Components are numbered from 0 in increasing order of their smallest node ID.
+     * @return the component of each node, in the order of {@link #getAllNodes()}
+     */
+    public int[] getComponentLabels() {
+        return getComponentLabels(getAllNodes());
+    }
+
+    /**
+     * Labels the given nodes with their connected component.
+     * @param nodes the nodes of the graph, in increasing ID order
+     * @return the component of each node
+     */
+    int[] getComponentLabels(List<Node> nodes) {
+        return components().labels(nodes);
+    }
+
+    /**
+     * Retrieves the union-find of the graph, building it again from the edges if a removal, or a
+     * change through the lists handed out by {@link #getAdjEgList()} or {@link #getOutEdges(Node)},
+     * dropped it.
+     * @return the union-find of the components of the graph
+     */
+    private UnionFind components() {
+        if (components == null) components = UnionFind.of(this);
+        return components;
+    }
 
     /**
      * Checks if the graph contains any self-loops.
@@ -855,35 +1128,14 @@ public class Graph {
     }
 
     /**
-     * Performs a depth-first search (DFS) traversal starting from a specified node.
+     * Performs a depth-first search (DFS) traversal starting from a specified node, then from every
+     * node left unvisited, in increasing ID order. The search runs iteratively on a snapshot of the
+     * graph, see {@link CsrGraph#dfsOrder(int)}.
      * @param u the node to start DFS from
      * @return a list of nodes in DFS traversal order
      */
     public List<Node> getDFS(Node u) {
-        List<Node> dfsNodes = new ArrayList<Node>();
-        Map<Integer, NodeColour> nodeColour = new HashMap<>();
-        Map<Integer, Integer> d = new HashMap<>();
-        Map<Integer, Integer> f = new HashMap<>();
-        Map<Integer, Node> pi = new HashMap<>();
-        List<Node> nodes = getAllNodes();
-
-        for (Node n: nodes) {
-            nodeColour.put(n.getId(), NodeColour.WHITE);
-            pi.put(n.getId(), null);
-        }
-        int time = 0;
-
-            if (nodeColour.get(u.getId()) == NodeColour.WHITE) {
-                if (!(dfsNodes.contains(u))) dfsNodes.add(u);
-                dfsVisit(u, time, nodeColour, d, f, pi, dfsNodes);
-            }
-        for (Node n: nodes) {
-            if (nodeColour.get(n.getId()) == NodeColour.WHITE) {
-                if (!(dfsNodes.contains(n))) dfsNodes.add(n);
-                dfsVisit(n, time, nodeColour, d, f, pi, dfsNodes);
-            }
-        }
-        return dfsNodes;
+        return traversal(u, true);
     }
 
     /**
@@ -932,27 +1184,31 @@ public class Graph {
     }
 
     /**
-     * Performs a breadth-first search (BFS) traversal starting from a specified node.
+     * Performs a breadth-first search (BFS) traversal starting from a specified node, then from every
+     * node left unvisited, in increasing ID order. The search runs on a snapshot of the graph, see
+     * {@link CsrGraph#bfsOrder(int)}.
      * @param u the node to start BFS from
      * @return a list of nodes in BFS traversal order
      */
     public List<Node> getBFS(Node u) {
-        List<Node> bfsNodes = new ArrayList<>();
-        Map<Integer, NodeColour> nodeColour = new HashMap<>();
-        Map<Integer, Integer> d = new HashMap<>();
-        Map<Integer, Node> parent = new HashMap<>();
-        for (Node n: getAllNodes()) {
-            d.put(n.getId(), -1);
-            parent.put(n.getId(), null);
-            nodeColour.put(n.getId(), NodeColour.WHITE);
-        }
-        getBFSVisit(u, nodeColour, d, parent, bfsNodes);
-        for (Integer iColor : nodeColour.keySet()){
-            if (nodeColour.get(iColor) == NodeColour.WHITE){
-                getBFSVisit(getNode(iColor), nodeColour, d, parent, bfsNodes);
-            }
-        }
-        return bfsNodes;
+        return traversal(u, false);
+    }
+
+    /**
+     * Maps the visit order of a snapshot of the graph back to its nodes, the snapshot numbering
+     * the nodes like {@link #getAllNodes()} orders them.
+     * @param u the node to start from, the traversal starting from the smallest ID if it is not in the graph
+     * @param depthFirst true for a DFS, false for a BFS
+     * @return a list of nodes in traversal order
+     */
+    private List<Node> traversal(Node u, boolean depthFirst) {
+        List<Node> nodes = getAllNodes();
+        CsrGraph snapshot = CsrGraph.of(this);
+        int source = Math.max(snapshot.indexOf(u.getId()), 0);
+        int[] order = depthFirst ? snapshot.dfsOrder(source) : snapshot.bfsOrder(source);
+        List<Node> res = new ArrayList<Node>(order.length);
+        for (int i : order) res.add(nodes.get(i));
+        return res;
     }
 
     /**
@@ -994,7 +1250,9 @@ public class Graph {
     public List<Node> getDFSWithVisitInfo(Map<Node, NodeVisitInfo> nodeVisit, Map<Edge, EdgeVisitType> edgeVisit) { return getDFSWithVisitInfo(smallestNodeId(), nodeVisit, edgeVisit);}
 
     /**
-     * Performs a depth-first search with additional visit information, starting from a specified node.
+     * Performs a depth-first search with additional visit information, starting from a specified node
+     * then from every node left unvisited, in increasing ID order. Times and edge types are computed
+     * in a single pass, see {@link DepthFirstSearch}, then copied into the maps.
      * @param u the node to start DFS from
      * @param nodeVisit a map to store visit information for each node
      * @param edgeVisit a map to store edge visit types
@@ -1002,24 +1260,35 @@ public class Graph {
      */
     public List<Node> getDFSWithVisitInfo(Node u, Map<Node, NodeVisitInfo> nodeVisit, Map<Edge, EdgeVisitType> edgeVisit) {
         List<Node> nodes = getAllNodes();
-        if (nodeVisit.isEmpty()) for (Node node : nodes) nodeVisit.put(node, new NodeVisitInfo());
-        if (edgeVisit.isEmpty()) for (Edge edge : getAllEdges()) edgeVisit.put(edge, EdgeVisitType.NULL);
-        int time = 0;
-        List<Node> dfsNodes = new ArrayList<Node>();
-        dfsNodes.add(u);
-
-        dfsVisitWithVisitInfo(u, time, nodeVisit, edgeVisit, dfsNodes);
-
-        for (Node n: nodes) {
-            if (nodeVisit.get(n).getColor() == NodeColour.WHITE) {
-                if (!(dfsNodes.contains(n))) dfsNodes.add(n);
-                time = 0;
-                dfsVisitWithVisitInfo(n, time, nodeVisit, edgeVisit, dfsNodes);
-            }
+        List<Edge> edges = getAllEdges();
+        DepthFirstSearch search = depthFirstSearch(u, nodes, edges);
+        for (int i = 0; i < nodes.size(); i++) {
+            NodeVisitInfo info = nodeVisit.get(nodes.get(i));
+            if (info == null) nodeVisit.put(nodes.get(i), info = new NodeVisitInfo());
+            search.visitInfo(nodes, i, info);
         }
+        for (int e = 0; e < edges.size(); e++) edgeVisit.put(edges.get(e), search.edgeType(e));
+        List<Node> dfsNodes = new ArrayList<Node>(nodes.size());
+        for (int i : search.order()) dfsNodes.add(nodes.get(i));
         return dfsNodes;
     }
 
+    /**
+     * Performs a depth-first search starting from a specified node then from every node left
+     * unvisited, recording discovery and finish times and classifying every edge in O(V+E).
+     * @param u the node to start DFS from, the search starting from the smallest ID if it is not in the graph
+     * @return the search, whose node and edge indexes are the positions in {@link #getAllNodes()}
+     * and {@link #getAllEdges()}
+     */
+    public DepthFirstSearch depthFirstSearch(Node u) {
+        return depthFirstSearch(u, getAllNodes(), getAllEdges());
+    }
+
+    private DepthFirstSearch depthFirstSearch(Node u, List<Node> nodes, List<Edge> edges) {
+        CsrGraph snapshot = CsrGraph.of(this, nodes, edges);
+        return new DepthFirstSearch(snapshot, Math.max(snapshot.indexOf(u.getId()), 0));
+    }
+
     /**
      * Helper method for depth-first search with visit information, categorizing edges as tree, back, forward, or cross.
      * @param u the current node being visited
@@ -1085,66 +1354,78 @@ public class Graph {
     }
 
     /**
-     * Loads a graph from a DOT file with the specified extension (.gv or .dot).
+     * Loads a graph from a DOT file with the specified extension (.gv or .dot, possibly followed by
+     * .gz). The gzipped version of the file is read when it is the only one present.
      * @param filename the name of the file (without extension) to load
-     * @param extension the file extension (.gv or .dot)
+     * @param extension the file extension (.gv, .dot, .gv.gz or .dot.gz)
      * @return a Graph instance created from the file, or null if the file cannot be read
      */
     public static Graph fromDotFile(String filename, String extension) {
-        Graph graph = null;
-        if (!(extension.equals(".gv")) && !(extension.equals(".dot"))) return graph;
-        File file = new File("./ressources/" + filename + extension);
-        Scanner scanner = null;
+        if (!(extension.equals(".gv")) && !(extension.equals(".dot")) && !(extension.equals(".gv.gz")) && !(extension.equals(".dot.gz"))) return null;
+        return fromDotFile(GraphFiles.ressource(filename, extension));
+    }
+
+    /**
+     * Loads a graph from a DOT file at any location, gzipped or not.
+     * @param path the path of the file
+     * @return a Graph instance created from the file
+     */
+    public static Graph fromDotFile(Path path) {
+        Graph graph = new Graph();
         try {
-            scanner = new Scanner(file);
-        } catch (FileNotFoundException e) {
+            DotParser.parse(path, new GraphBuilder(graph));
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        graph = new Graph(); // Initialize an empty graph
-
-        while (scanner.hasNext()) {
-            String token = scanner.next();
+        return graph;
+    }
 
-            if (token.equals("graph") || token.equals("{") || token.equals("rankdir=LR")) {
-                continue;
-            }else if (token.equals("}")) {
-                break;
-            }
+    /**
+     * Loads a graph from a file in the DIMACS shortest path format ({@code .gr}), each arc
+     * {@code a u v w} giving an edge from u to v of weight w, see {@link EdgeListParser}.
+     * @param path the path of the file
+     * @return a Graph instance created from the file
+     */
+    public static Graph fromDimacsFile(Path path) {
+        Graph graph = new Graph();
+        try {
+            EdgeListParser.parse(path, EdgeListParser.Format.DIMACS, new GraphBuilder(graph));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return graph;
+    }
 
-            // Parse nodes and edges
-            try {
-                int from = Integer.parseInt(token); // Read the first node
-                scanner.next(); // Skip the "--"
-                int to = scanner.nextInt(); // Read the second node
-
-                // Check for attributes (label, len)
-                String attributes = scanner.findInLine("\\[.*?\\]");
-                Integer weight = null;
-                if (attributes != null) {
-                    // Parse the "label" attribute if present
-                    String[] parts = attributes.replace("[", "").replace("]", "").split(",");
-                    for (String part : parts) {
-                        String[] keyValue = part.split("=");
-                        if (keyValue[0].trim().equals("label") || keyValue[0].trim().equals("len")) {
-                            weight = Integer.parseInt(keyValue[1].trim());
-                        }
-                    }
-                }
+    /**
+     * Loads a graph from a CSV edge list, each line {@code u,v} or {@code u,v,w} giving an edge
+     * from u to v, see {@link EdgeListParser}.
+     * @param path the path of the file
+     * @return a Graph instance created from the file
+     */
+    public static Graph fromCsvFile(Path path) {
+        Graph graph = new Graph();
+        try {
+            EdgeListParser.parse(path, EdgeListParser.Format.CSV, new GraphBuilder(graph));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return graph;
+    }
 
-                // Add the nodes and edge to the graph
-                graph.addNode(from);
-                graph.addNode(to);
-                if (weight != null) {
-                    graph.addEdge(from, to, weight);
-                } else {
-                    graph.addEdge(from, to);
-                }
-            } catch (NumberFormatException | IllegalStateException e) {
-                // Handle potential parsing issues
-                System.err.println("Error parsing line: " + token);
-            }
+    /**
+     * Loads a graph from a CSV edge list whose node ids are arbitrary longs. Nodes get the dense
+     * ids given by the mapping, from 1 to the number of nodes when the mapping starts empty.
+     * @param path the path of the file
+     * @param ids the mapping filled with the node ids of the file
+     * @return a Graph instance created from the file
+     */
+    public static Graph fromCsvFile(Path path, NodeIdMapping ids) {
+        Graph graph = new Graph();
+        try {
+            EdgeListParser.parse(path, EdgeListParser.Format.CSV, ids, new GraphBuilder(graph));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
-        scanner.close();
         return graph;
     }
 
@@ -1153,24 +1434,31 @@ public class Graph {
      * @return a String in DOT format representing the graph
      */
     public String toDotString() {
-        StringBuilder res = new StringBuilder("# DOT string generated by the 'toDotString' function\n");
-        res.append("digraph ").append(getName()).append("{\n\trankdir=LR");
-        List<Node> edgeNodes = getEdgesNodes(getAllEdges());
-        List<Edge> edges;
-        for (Node n : getAllNodes()){
-            if (!edgeNodes.contains(n)){
-                res.append("\n\t").append(n.getId());
-                continue;
-            }
-            edges = adjEgList.get(n);
-            Collections.sort(edges);
-            for (Edge e : edges){
-                res.append("\n\t").append(e.toString());
-            }
+        StringWriter res = new StringWriter();
+        try {
+            toDot(res);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        if (label != null)
-            res.append("\n\tlabel=\"").append(label).append("\"");
-        return res.append("\n}").toString();
+        return res.toString();
+    }
+
+    /**
+     * Writes the DOT format representation of the graph to a Writer, see {@link DotWriter}.
+     * @param out the writer to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void toDot(Writer out) throws IOException {
+        new DotWriter(out).write(this);
+    }
+
+    /**
+     * Writes the DOT format representation of the graph as UTF-8 to a channel, see {@link DotWriter}.
+     * @param channel the channel to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void toDot(WritableByteChannel channel) throws IOException {
+        new DotWriter(channel).write(this);
     }
 
     /**
@@ -1183,20 +1471,59 @@ public class Graph {
     }
 
     /**
-     * Exports the graph to a DOT file with the specified extension.
+     * Exports the graph to a DOT file with the specified extension, replacing the file if it exists.
+     * The file is compressed with gzip when the extension ends with .gz.
      * @param fileName the name of the file (without extension) to export to
-     * @param extension the file extension (.gv or other)
+     * @param extension the file extension (.gv, .gv.gz or other)
      * @throws IOException if an I/O error occurs during file creation
      */
     public void toDotFile(String fileName, String extension) throws IOException {
-        File targetFile = new File("./ressources/" + fileName + extension);
-        targetFile.delete();
-        File newFile = new File("./ressources/" + fileName + extension);
-        boolean success = newFile.createNewFile();
-        if (!success) throw new IOException("Could not create file " + targetFile);
-        else {
-            Path filePath = Paths.get("./ressources/" + fileName + extension);
-            Files.writeString(filePath, toDotString());
+        Path filePath = Paths.get("./ressources/" + fileName + extension);
+        try (WritableByteChannel channel = GraphFiles.openOutput(filePath)) {
+            toDot(channel);
+        }
+    }
+
+    /**
+     * Exports the graph to a binary file with the default .gbin extension, see {@link CsrGraph}.
+     * @param fileName the name of the file (without extension) to export to
+     * @throws IOException if an I/O error occurs during file creation
+     */
+    public void toBinaryFile(String fileName) throws IOException {
+        toBinaryFile(fileName, ".gbin");
+    }
+
+    /**
+     * Exports the graph to a binary file with the specified extension, see {@link CsrGraph}.
+     * @param fileName the name of the file (without extension) to export to
+     * @param extension the file extension
+     * @throws IOException if an I/O error occurs during file creation
+     */
+    public void toBinaryFile(String fileName, String extension) throws IOException {
+        CsrGraph.of(this).write(Paths.get("./ressources/" + fileName + extension));
+    }
+
+    /**
+     * Loads a graph from a binary file with the default .gbin extension.
+     * @param filename the name of the file (without extension) to load
+     * @return a Graph instance created from the file, an UndirectedGraph if the file holds one
+     */
+    public static Graph fromBinaryFile(String filename) {
+        return fromBinaryFile(filename, ".gbin");
+    }
+
+    /**
+     * Loads a graph from a binary file with the specified extension. The file is memory-mapped
+     * and its arcs are copied into the graph without any parsing.
+     * @param filename the name of the file (without extension) to load
+     * @param extension the file extension
+     * @return a Graph instance created from the file, an UndirectedGraph if the file holds one
+     */
+    public static Graph fromBinaryFile(String filename, String extension) {
+        try {
+            return CsrGraph.read(Paths.get("./ressources/" + filename + extension)).toGraph();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
 }
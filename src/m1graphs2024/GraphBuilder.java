@@ -0,0 +1,48 @@
+package m1graphs2024;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bulk builder filling a graph from a stream of nodes and edges, as produced by a {@link DotParser}.
+ * Nodes are kept in a map indexed by id, so adding an edge does not scan the nodes of the graph.
+ * Edges are stored once, from their source node, like {@link Graph#addEdge(Edge)} does.
+ * @author Johan Barçon
+ */
+class GraphBuilder implements DotParser.Handler {
+    private final Graph graph;
+    private final Map<Integer, Node> nodes = new HashMap<>();
+
+    /**
+     * Creates a builder filling the given graph, which must be empty.
+     * @param graph the graph to fill
+     */
+    GraphBuilder(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Retrieves the node with the given id, adding it to the graph if needed.
+     * @param id the id of the node
+     * @return the node of the graph
+     */
+    Node nodeOf(int id) {
+        Node n = nodes.get(id);
+        if (n == null) {
+            n = new Node(graph, id);
+            nodes.put(id, n);
+            graph.addNode(n);
+        }
+        return n;
+    }
+
+    @Override
+    public void node(int id) {
+        nodeOf(id);
+    }
+
+    @Override
+    public void edge(int from, int to, int weight, String color) {
+        graph.addEdge(new Edge(nodeOf(from), nodeOf(to), weight == DotParser.NO_WEIGHT ? null : weight, color));
+    }
+}
@@ -0,0 +1,195 @@
+package m1graphs2024;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens graph files for reading and writing, handling gzip compression transparently.
+ * A file is read as gzip when its name ends with {@code .gz} or when it starts with the gzip
+ * magic bytes; it is then decompressed on a separate thread, one block ahead of the parser, so
+ * that reading the disk, inflating and parsing overlap. A file is written as gzip when its name
+ * ends with {@code .gz}.
+ * @author Johan Barçon
+ */
+public final class GraphFiles {
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int BLOCKS_AHEAD = 4;
+
+    private GraphFiles() {
+    }
+
+    /**
+     * Resolves a file of the ressources directory, falling back on its gzipped version
+     * ({@code name.gv.gz} for {@code name.gv}) when only that one exists.
+     * @param filename the name of the file, without extension
+     * @param extension the extension of the file
+     * @return the path of the file
+     */
+    static Path ressource(String filename, String extension) {
+        Path path = Paths.get("./ressources/" + filename + extension);
+        if (Files.exists(path) || extension.endsWith(".gz")) return path;
+        Path gzipped = Paths.get("./ressources/" + filename + extension + ".gz");
+        return Files.exists(gzipped) ? gzipped : path;
+    }
+
+    /**
+     * Tells whether a file is compressed with gzip, from its name or its first bytes.
+     * @param path the path of the file
+     * @return true if the file is gzipped
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isGzip(Path path) throws IOException {
+        if (path.getFileName().toString().endsWith(".gz")) return true;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return isGzip(channel);
+        }
+    }
+
+    private static boolean isGzip(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+            // read the two first bytes
+        }
+        return magic.position() == 2 && (magic.get(0) & 0xff) == 0x1f && (magic.get(1) & 0xff) == 0x8b;
+    }
+
+    /**
+     * Opens a file for reading, decompressing it on a separate thread if it is gzipped.
+     * @param path the path of the file
+     * @return a channel reading the uncompressed content of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static ReadableByteChannel openInput(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (!path.getFileName().toString().endsWith(".gz") && !isGzip(channel)) return channel;
+            return new InflatingChannel(new GZIPInputStream(Channels.newInputStream(channel), 1 << 16));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a file for writing, replacing it if it exists, and compressing with gzip if its name
+     * ends with {@code .gz}.
+     * @param path the path of the file
+     * @return a channel writing to the file
+     * @throws IOException if the file cannot be created
+     */
+    public static WritableByteChannel openOutput(Path path) throws IOException {
+        if (!path.getFileName().toString().endsWith(".gz")) {
+            return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        return Channels.newChannel(new GZIPOutputStream(Files.newOutputStream(path), 1 << 16));
+    }
+
+    /**
+     * Channel over a stream inflated by a background thread. Filled blocks are handed to the
+     * reader through a bounded queue and given back through a second one, so no block is
+     * allocated once the pipeline is running.
+     */
+    private static final class InflatingChannel implements ReadableByteChannel {
+        private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+        private final InputStream in;
+        private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(BLOCKS_AHEAD + 1);
+        private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BLOCKS_AHEAD + 1);
+        private final Thread inflater;
+        private volatile IOException failure;
+        private ByteBuffer current;
+        private boolean open = true;
+
+        InflatingChannel(InputStream in) {
+            this.in = in;
+            for (int i = 0; i < BLOCKS_AHEAD; i++) free.add(ByteBuffer.allocate(BLOCK_SIZE));
+            inflater = new Thread(this::inflate, "gzip-inflater");
+            inflater.setDaemon(true);
+            inflater.start();
+        }
+
+        private void inflate() {
+            try {
+                while (true) {
+                    ByteBuffer block = free.take();
+                    block.clear();
+                    byte[] bytes = block.array();
+                    int length = 0;
+                    int read = 0;
+                    while (length < bytes.length && (read = in.read(bytes, length, bytes.length - length)) != -1) {
+                        length += read;
+                    }
+                    if (length > 0) {
+                        block.limit(length);
+                        filled.put(block);
+                    }
+                    if (read == -1) break;
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                filled.put(END);
+            } catch (InterruptedException e) {
+                // closed by the reader
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) throw new ClosedChannelException();
+            if (current == END) return -1;
+            if (current == null || !current.hasRemaining()) {
+                if (current != null) free.add(current);
+                try {
+                    current = filled.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while inflating", e);
+                }
+                if (current == END) {
+                    if (failure != null) throw failure;
+                    return -1;
+                }
+            }
+            int length = Math.min(dst.remaining(), current.remaining());
+            dst.put(current.array(), current.position(), length);
+            current.position(current.position() + length);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!open) return;
+            open = false;
+            inflater.interrupt();
+            try {
+                inflater.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package m1graphs2024;
+
+import java.util.Arrays;
+
+/**
+ * Map from {@code long} keys to non-negative {@code int} values, with open addressing and linear
+ * probing over two primitive arrays, so that neither keys nor values are boxed. A slot is free when
+ * its value is -1. The table is kept at most half full and doubled when needed.
+ * @author Johan Barçon
+ */
+public class LongIntMap {
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Creates an empty map.
+     * @param capacity the number of keys expected
+     */
+    public LongIntMap(int capacity) {
+        int length = Integer.highestOneBit(Math.max(capacity, 4) * 2 - 1) << 1;
+        keys = new long[length];
+        values = new int[length];
+        Arrays.fill(values, -1);
+    }
+
+    /**
+     * Retrieves the number of keys.
+     * @return the size of the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the value of a key.
+     * @param key the key
+     * @return its value, or -1 if the key is not in the map
+     */
+    public int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); values[slot] != -1; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return values[slot];
+        }
+        return -1;
+    }
+
+    /**
+     * Tells whether a key is in the map.
+     * @param key the key
+     * @return true if the key has a value
+     */
+    public boolean containsKey(long key) {
+        return get(key) != -1;
+    }
+
+    /**
+     * Sets the value of a key.
+     * @param key the key
+     * @param value the value, non-negative
+     * @return the previous value of the key, or -1 if it had none
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public int put(long key, int value) {
+        if (value < 0) throw new IllegalArgumentException("Negative value for key " + key + ": " + value);
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        for (; values[slot] != -1; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) grow();
+        return -1;
+    }
+
+    /**
+     * Retrieves the value of a key, giving it the size of the map first if it has none, so that
+     * keys seen one after the other are numbered 0, 1, 2 and so on.
+     * @param key the key
+     * @return the value of the key
+     */
+    public int putIfAbsent(long key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        for (; values[slot] != -1; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return values[slot];
+        }
+        int value = size;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) grow();
+        return value;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[2 * oldKeys.length];
+        values = new int[2 * oldValues.length];
+        Arrays.fill(values, -1);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == -1) continue;
+            int slot = slot(oldKeys[i], mask);
+            while (values[slot] != -1) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,89 @@
+package m1graphs2024;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mapping between arbitrary {@code long} node ids, as found in external data such as OpenStreetMap
+ * extracts, and the dense ids used inside the graphs. External ids are given internal ids 1, 2, 3
+ * and so on in the order they are first seen, so that a graph loaded through the mapping has
+ * contiguous ids, which {@link Graph#toAdjMatrix()}, {@link Graph#toSuccessorArray()} and the
+ * snapshots rely on, the index of a node in a {@link CsrGraph} being its internal id minus one.
+ * External ids are only needed again when results are written out.
+ * @author Johan Barçon
+ */
+public class NodeIdMapping {
+    private final LongIntMap internal;
+    private long[] external;
+
+    /**
+     * Creates an empty mapping.
+     */
+    public NodeIdMapping() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty mapping.
+     * @param capacity the number of nodes expected
+     */
+    public NodeIdMapping(int capacity) {
+        internal = new LongIntMap(capacity);
+        external = new long[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Retrieves the internal id of an external id, giving it the next internal id if it has none.
+     * @param externalId the external id
+     * @return the internal id, from 1 to the number of nodes mapped
+     * @throws IllegalStateException if more than Integer.MAX_VALUE - 1 ids are mapped
+     */
+    public int internalId(long externalId) {
+        int index = internal.putIfAbsent(externalId);
+        if (index == Integer.MAX_VALUE - 1) throw new IllegalStateException("Too many node ids to map");
+        if (index == external.length) external = Arrays.copyOf(external, 2 * external.length);
+        external[index] = externalId;
+        return index + 1;
+    }
+
+    /**
+     * Retrieves the internal id of an external id already mapped.
+     * @param externalId the external id
+     * @return the internal id, or 0 if the external id was never mapped
+     */
+    public int find(long externalId) {
+        return internal.get(externalId) + 1;
+    }
+
+    /**
+     * Retrieves the external id of an internal id.
+     * @param internalId the internal id
+     * @return the external id
+     * @throws IllegalArgumentException if no external id was given this internal id
+     */
+    public long externalId(int internalId) {
+        if (internalId <= 0 || internalId > internal.size()) {
+            throw new IllegalArgumentException("No external id for the node " + internalId);
+        }
+        return external[internalId - 1];
+    }
+
+    /**
+     * Retrieves the external ids of some nodes, such as a route found on the graph.
+     * @param nodes the nodes, with internal ids
+     * @return their external ids, in the same order
+     */
+    public long[] externalIds(List<Node> nodes) {
+        long[] ids = new long[nodes.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = externalId(nodes.get(i).getId());
+        return ids;
+    }
+
+    /**
+     * Retrieves the number of ids mapped.
+     * @return the number of nodes
+     */
+    public int size() {
+        return internal.size();
+    }
+}
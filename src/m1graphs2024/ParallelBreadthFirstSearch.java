@@ -0,0 +1,340 @@
+package m1graphs2024;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Level-synchronous breadth-first search over a {@link CsrGraph}, each level being expanded in
+ * parallel on a {@link ForkJoinPool}. Visited nodes are marked in a bitset of {@code long} words
+ * updated by compare-and-set, so that a node reached from several nodes of the frontier is only
+ * claimed once.
+ * <p>The search is direction-optimizing: while the frontier is small, its nodes push to their
+ * successors (top-down); once the arcs leaving the frontier outnumber a fraction of the arcs left
+ * to explore, every unvisited node looks for a predecessor in the frontier instead (bottom-up), and
+ * stops at the first one found. The reverse arcs needed by the bottom-up steps of a directed graph
+ * are only built the first time such a step runs; an undirected snapshot holds them already.</p>
+ * <p>Results are kept in arrays indexed by node index: the distance of every node to the sources,
+ * and the nodes reached grouped by level, in increasing index order within a level, so the result
+ * does not depend on the scheduling of the tasks.</p>
+ * @author Johan Barçon
+ */
+public class ParallelBreadthFirstSearch {
+    private static final int GRAIN = 4096;
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+
+    private final CsrGraph graph;
+    private final ForkJoinPool pool;
+    private final int[] distance;
+    private final int[] order;
+    private int[] levelOffsets;
+    private int nbLevels;
+    private int nbReached;
+    private int[] inOffsets;
+    private int[] inSources;
+
+    /**
+     * Runs the search from a single node on the common pool.
+     * @param graph the snapshot to search
+     * @param source the index of the source node
+     */
+    public ParallelBreadthFirstSearch(CsrGraph graph, int source) {
+        this(graph, new int[]{source}, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs the search from several nodes at once.
+     * @param graph the snapshot to search
+     * @param sources the indexes of the source nodes, all at distance 0
+     * @param pool the pool running the tasks
+     * @throws IllegalArgumentException if a source is not a node of the snapshot
+     */
+    public ParallelBreadthFirstSearch(CsrGraph graph, int[] sources, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+        int n = graph.nbNodes();
+        distance = new int[n];
+        Arrays.fill(distance, -1);
+        order = new int[n];
+        levelOffsets = new int[16];
+        AtomicLongArray visited = new AtomicLongArray((n + 63) >>> 6);
+        long explored = 0;
+        for (int s : sources) {
+            if (s < 0 || s >= n) throw new IllegalArgumentException("No node at index " + s + " in the graph");
+            if (!mark(visited, s)) continue;
+            distance[s] = 0;
+            order[nbReached++] = s;
+            explored += graph.degree(s);
+        }
+        Arrays.sort(order, 0, nbReached);
+        closeLevel();
+        boolean bottomUp = false;
+        long frontierArcs = explored;
+        while (levelOffsets[nbLevels] > levelOffsets[nbLevels - 1]) {
+            long unexplored = graph.nbArcs() - explored;
+            int frontierSize = levelOffsets[nbLevels] - levelOffsets[nbLevels - 1];
+            if (!bottomUp && frontierArcs > unexplored / ALPHA) bottomUp = true;
+            else if (bottomUp && frontierSize < n / BETA) bottomUp = false;
+            frontierArcs = bottomUp ? bottomUpStep(visited) : topDownStep(visited);
+            explored += frontierArcs;
+            closeLevel();
+        }
+        nbLevels--;
+    }
+
+    /**
+     * Expands the frontier from its nodes: each chunk of the frontier claims the unvisited
+     * successors of its nodes.
+     * @return the number of arcs leaving the new frontier
+     */
+    private long topDownStep(AtomicLongArray visited) {
+        int from = levelOffsets[nbLevels - 1];
+        int to = levelOffsets[nbLevels];
+        int level = nbLevels;
+        int chunks = (to - from + GRAIN - 1) / GRAIN;
+        int[][] found = new int[chunks][];
+        int[] counts = new int[chunks];
+        long[] arcs = new long[chunks];
+        forEachChunk(chunks, c -> {
+            int[] local = new int[64];
+            int count = 0;
+            long degrees = 0;
+            for (int f = from + c * GRAIN, end = Math.min(to, f + GRAIN); f < end; f++) {
+                int u = order[f];
+                for (int a = graph.offset(u), last = graph.offset(u + 1); a < last; a++) {
+                    int v = graph.target(a);
+                    if (!mark(visited, v)) continue;
+                    distance[v] = level;
+                    if (count == local.length) local = Arrays.copyOf(local, 2 * count);
+                    local[count++] = v;
+                    degrees += graph.degree(v);
+                }
+            }
+            found[c] = local;
+            counts[c] = count;
+            arcs[c] = degrees;
+        });
+        int start = nbReached;
+        long total = gather(found, counts, arcs);
+        Arrays.sort(order, start, nbReached);
+        return total;
+    }
+
+    /**
+     * Expands the frontier toward it: each chunk of 64-aligned node indexes looks, for each of its
+     * unvisited nodes, for a predecessor in the frontier.
+     * @return the number of arcs leaving the new frontier
+     */
+    private long bottomUpStep(AtomicLongArray visited) {
+        if (inOffsets == null) reverseArcs();
+        int n = graph.nbNodes();
+        long[] frontier = new long[(n + 63) >>> 6];
+        for (int f = levelOffsets[nbLevels - 1]; f < levelOffsets[nbLevels]; f++) {
+            frontier[order[f] >>> 6] |= 1L << order[f];
+        }
+        int level = nbLevels;
+        int chunks = (n + GRAIN - 1) / GRAIN;
+        int[][] found = new int[chunks][];
+        int[] counts = new int[chunks];
+        long[] arcs = new long[chunks];
+        forEachChunk(chunks, c -> {
+            int[] local = new int[64];
+            int count = 0;
+            long degrees = 0;
+            for (int v = c * GRAIN, end = Math.min(n, v + GRAIN); v < end; v++) {
+                if ((visited.get(v >>> 6) & (1L << v)) != 0) continue;
+                for (int a = inOffsets[v], last = inOffsets[v + 1]; a < last; a++) {
+                    int u = inSources[a];
+                    if ((frontier[u >>> 6] & (1L << u)) == 0) continue;
+                    mark(visited, v);
+                    distance[v] = level;
+                    if (count == local.length) local = Arrays.copyOf(local, 2 * count);
+                    local[count++] = v;
+                    degrees += graph.degree(v);
+                    break;
+                }
+            }
+            found[c] = local;
+            counts[c] = count;
+            arcs[c] = degrees;
+        });
+        return gather(found, counts, arcs);
+    }
+
+    /**
+     * Appends the nodes found by the chunks of a step to the order, in chunk order.
+     * @return the sum of the arc counts of the chunks
+     */
+    private long gather(int[][] found, int[] counts, long[] arcs) {
+        long total = 0;
+        for (int c = 0; c < found.length; c++) {
+            System.arraycopy(found[c], 0, order, nbReached, counts[c]);
+            nbReached += counts[c];
+            total += arcs[c];
+        }
+        return total;
+    }
+
+    /**
+     * Ends the current level at the last node reached.
+     */
+    private void closeLevel() {
+        if (nbLevels + 1 == levelOffsets.length) levelOffsets = Arrays.copyOf(levelOffsets, 2 * levelOffsets.length);
+        levelOffsets[++nbLevels] = nbReached;
+    }
+
+    /**
+     * Builds the predecessors of every node. The arcs of an undirected snapshot go both ways, so
+     * they are used as they are.
+     */
+    private void reverseArcs() {
+        int n = graph.nbNodes();
+        inOffsets = new int[n + 1];
+        if (!graph.isDirected()) {
+            inSources = new int[graph.nbArcs()];
+            for (int i = 0; i <= n; i++) inOffsets[i] = graph.offset(i);
+            for (int a = 0; a < inSources.length; a++) inSources[a] = graph.target(a);
+            return;
+        }
+        for (int a = 0; a < graph.nbArcs(); a++) inOffsets[graph.target(a) + 1]++;
+        for (int i = 0; i < n; i++) inOffsets[i + 1] += inOffsets[i];
+        int[] next = Arrays.copyOf(inOffsets, n);
+        inSources = new int[graph.nbArcs()];
+        for (int u = 0; u < n; u++) {
+            for (int a = graph.offset(u), end = graph.offset(u + 1); a < end; a++) {
+                inSources[next[graph.target(a)]++] = u;
+            }
+        }
+    }
+
+    /**
+     * Runs a task for every chunk number on the pool and waits for all of them.
+     */
+    private void forEachChunk(int chunks, IntConsumer task) {
+        if (chunks == 1) task.accept(0);
+        else if (chunks > 1) pool.invoke(new Chunks(task, 0, chunks));
+    }
+
+    /**
+     * Sets the bit of a node unless it is already set.
+     * @return true if this call set the bit
+     */
+    private static boolean mark(AtomicLongArray bits, int i) {
+        int word = i >>> 6;
+        long bit = 1L << i;
+        long old;
+        do {
+            old = bits.get(word);
+            if ((old & bit) != 0) return false;
+        } while (!bits.compareAndSet(word, old, old | bit));
+        return true;
+    }
+
+    /**
+     * Splits a range of chunk numbers in halves until a single chunk is left.
+     */
+    private static final class Chunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final IntConsumer task;
+        private final int from;
+        private final int to;
+
+        Chunks(IntConsumer task, int from, int to) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                task.accept(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Chunks(task, from, middle), new Chunks(task, middle, to));
+        }
+    }
+
+    /**
+     * Retrieves the snapshot searched.
+     * @return the snapshot
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Retrieves the distance of a node to the closest source.
+     * @param i the index of the node
+     * @return the number of arcs of a shortest path from a source, or -1 if the node is not reached
+     */
+    public int distance(int i) {
+        return distance[i];
+    }
+
+    /**
+     * Retrieves the distance of every node to the closest source.
+     * @return the distances indexed by node index, -1 for the nodes not reached
+     */
+    public int[] distances() {
+        return distance.clone();
+    }
+
+    /**
+     * Tells whether a node was reached.
+     * @param i the index of the node
+     * @return true if a source reaches it
+     */
+    public boolean isReached(int i) {
+        return distance[i] != -1;
+    }
+
+    /**
+     * Retrieves the number of nodes reached, the sources included.
+     * @return the number of nodes reached
+     */
+    public int nbReached() {
+        return nbReached;
+    }
+
+    /**
+     * Tells whether every node with at least one arc was reached, which is how
+     * {@link Graph#isDisconnectedGraph()} defines a connected graph.
+     * @return true if no node with arcs is left unreached
+     */
+    public boolean reachesAllArcs() {
+        for (int i = 0; i < distance.length; i++) {
+            if (distance[i] == -1 && graph.degree(i) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the number of levels, the sources being level 0.
+     * @return the number of levels
+     */
+    public int nbLevels() {
+        return nbLevels;
+    }
+
+    /**
+     * Retrieves the nodes reached, level by level, in increasing index order within a level.
+     * @return the indexes of the nodes reached
+     */
+    public int[] order() {
+        return Arrays.copyOf(order, nbReached);
+    }
+
+    /**
+     * Retrieves where each level starts in {@link #order()}: level l holds the nodes from
+     * position {@code offsets[l]} included to {@code offsets[l + 1]} excluded.
+     * @return the offsets of the levels, one more than the number of levels
+     */
+    public int[] levelOffsets() {
+        return Arrays.copyOf(levelOffsets, nbLevels + 1);
+    }
+}
@@ -0,0 +1,164 @@
+package m1graphs2024;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loader for very large DOT edge lists. The file is memory-mapped and cut into chunks at line
+ * boundaries, every chunk is parsed by its own {@link DotParser} on a thread of a pool into an
+ * {@link EdgeBuffer}, and the buffers are merged back in file order, so the graph obtained is the
+ * same as with {@link Graph#fromDotFile(String)}.
+ * <p>A chunk always starts on a line beginning with a node id, so statements are never cut. Quoted
+ * attribute values spanning several lines must not contain such lines. A gzipped file cannot be
+ * mapped and is parsed by a single parser, its decompression running on a thread of its own.</p>
+ * @author Johan Barçon
+ */
+public class ParallelDotLoader {
+    /**
+     * Files smaller than this are parsed as a single chunk.
+     */
+    private static final long MIN_CHUNK_SIZE = 1 << 22;
+    /**
+     * Upper bound of the size of a chunk, a mapping being limited to 2 GB.
+     */
+    private static final long MAX_CHUNK_SIZE = 1 << 28;
+
+    private ParallelDotLoader() {
+    }
+
+    /**
+     * Loads an undirected graph from a DOT file, using one thread per available processor.
+     * @param path the path of the file
+     * @return the graph read
+     * @throws IOException if the file cannot be read
+     */
+    public static UndirectedGraph loadUndirected(Path path) throws IOException {
+        return loadEdges(path, Runtime.getRuntime().availableProcessors()).fill(new UndirectedGraph());
+    }
+
+    /**
+     * Loads a directed graph from a DOT file, using one thread per available processor.
+     * @param path the path of the file
+     * @return the graph read
+     * @throws IOException if the file cannot be read
+     */
+    public static Graph load(Path path) throws IOException {
+        return loadEdges(path, Runtime.getRuntime().availableProcessors()).fill(new Graph());
+    }
+
+    /**
+     * Parses the edges of a DOT file in parallel without building any Node or Edge.
+     * @param path the path of the file
+     * @param threads the number of parsing threads
+     * @return the edges and node statements of the file, in file order
+     * @throws IOException if the file cannot be read
+     */
+    public static EdgeBuffer loadEdges(Path path, int threads) throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0.");
+        }
+        if (GraphFiles.isGzip(path)) {
+            EdgeBuffer buffer = new EdgeBuffer();
+            DotParser.parse(path, buffer);
+            return buffer;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = chunks(channel, threads);
+            int nbChunks = bounds.length - 1;
+            if (nbChunks == 1) {
+                EdgeBuffer buffer = new EdgeBuffer();
+                new DotParser(channel.map(FileChannel.MapMode.READ_ONLY, 0, bounds[1])).parse(buffer);
+                return buffer;
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, nbChunks));
+            try {
+                List<Future<EdgeBuffer>> parts = new ArrayList<>();
+                for (int i = 0; i < nbChunks; i++) {
+                    MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+                    int capacity = (int) Math.min(Integer.MAX_VALUE - 8, (bounds[i + 1] - bounds[i]) / 16);
+                    parts.add(pool.submit(() -> {
+                        EdgeBuffer buffer = new EdgeBuffer(capacity);
+                        new DotParser(chunk).parse(buffer);
+                        return buffer;
+                    }));
+                }
+                EdgeBuffer result = parts.get(0).get();
+                for (int i = 1; i < nbChunks; i++) {
+                    result.append(parts.get(i).get());
+                    parts.set(i, null);
+                }
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                throw new RuntimeException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Computes the bounds of the chunks of a file: about one per thread, none bigger than
+     * {@link #MAX_CHUNK_SIZE}, each one starting at a line whose first non-blank byte is a digit.
+     * @param channel the channel of the file
+     * @param threads the number of parsing threads
+     * @return the offsets of the chunks, the last one being the size of the file
+     * @throws IOException if the file cannot be read
+     */
+    private static long[] chunks(FileChannel channel, int threads) throws IOException {
+        long size = channel.size();
+        long target = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, (size + threads - 1) / threads));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long start = 0;
+        while (size - start > target) {
+            long next = lineStart(channel, start + target, size);
+            if (next >= size) break;
+            bounds.add(next);
+            start = next;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) result[i] = bounds.get(i);
+        return result;
+    }
+
+    /**
+     * Finds the first line starting a statement at or after an offset.
+     * @param channel the channel of the file
+     * @param from the offset where to start looking
+     * @param size the size of the file
+     * @return the offset of the line, or the size of the file if there is none
+     * @throws IOException if the file cannot be read
+     */
+    private static long lineStart(FileChannel channel, long from, long size) throws IOException {
+        long line = -1;
+        while (from < size) {
+            int length = (int) Math.min(size - from, 1 << 16);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+            for (int i = 0; i < length; i++) {
+                byte c = window.get(i);
+                if (c == '\n') {
+                    line = from + i + 1;
+                } else if (line != -1 && c != ' ' && c != '\t' && c != '\r') {
+                    if (c >= '0' && c <= '9') return line;
+                    line = -1;
+                }
+            }
+            from += length;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,246 @@
+package m1graphs2024;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Transitive closure of a graph, telling for every pair of nodes whether the first one reaches the
+ * second one through at least one arc. The strongly connected components of the graph are found
+ * with Tarjan's algorithm, which completes them in reverse topological order: when a component is
+ * completed, every component it leads to already has its row, so its own row is the bitwise OR of
+ * theirs, 64 nodes per word, plus its members. The nodes of a component reach the same nodes, so
+ * only one row of {@code long} words is kept per component. For an undirected graph the components
+ * are the connected components.
+ * <p>The matrix takes at most n²/8 bytes for n nodes, much less when the graph has few components.
+ * A {@link Graph} is only built by {@link #toGraph()}.</p>
+ * @author Johan Barçon
+ */
+public class ReachabilityMatrix {
+    private final boolean directed;
+    private final int[] nodeIds;
+    private final int[] component;
+    private final boolean[] cyclic;
+    private final long[][] rows;
+
+    private ReachabilityMatrix(boolean directed, int[] nodeIds, int[] component, boolean[] cyclic, long[][] rows) {
+        this.directed = directed;
+        this.nodeIds = nodeIds;
+        this.component = component;
+        this.cyclic = cyclic;
+        this.rows = rows;
+    }
+
+    /**
+     * Computes the transitive closure of a snapshot.
+     * @param graph the snapshot
+     * @return the reachability matrix of its nodes
+     */
+    public static ReachabilityMatrix of(CsrGraph graph) {
+        int n = graph.nbNodes();
+        int words = (n + 63) >>> 6;
+        int[] nodeIds = new int[n];
+        for (int i = 0; i < n; i++) nodeIds[i] = graph.nodeId(i);
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] component = new int[n];
+        Arrays.fill(component, -1);
+        int[] stack = new int[n];
+        int[] path = new int[n];
+        int[] next = new int[n];
+        int[] lastMerged = new int[n];
+        Arrays.fill(lastMerged, -1);
+        boolean[] cyclic = new boolean[n];
+        long[][] rows = new long[n][];
+        int counter = 0;
+        int size = 0;
+        int k = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] != 0) continue;
+            int depth = 0;
+            index[root] = low[root] = ++counter;
+            stack[size++] = root;
+            path[depth] = root;
+            next[depth++] = graph.offset(root);
+            while (depth > 0) {
+                int u = path[depth - 1];
+                int a = next[depth - 1];
+                if (a < graph.offset(u + 1)) {
+                    next[depth - 1] = a + 1;
+                    int v = graph.target(a);
+                    if (index[v] == 0) {
+                        index[v] = low[v] = ++counter;
+                        stack[size++] = v;
+                        path[depth] = v;
+                        next[depth++] = graph.offset(v);
+                    } else if (component[v] == -1) {
+                        low[u] = Math.min(low[u], index[v]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) low[path[depth - 1]] = Math.min(low[path[depth - 1]], low[u]);
+                if (low[u] != index[u]) continue;
+                int start = size;
+                do {
+                    component[stack[--start]] = k;
+                } while (stack[start] != u);
+                long[] row = new long[words];
+                boolean loop = size - start > 1;
+                for (int s = start; s < size; s++) {
+                    int w = stack[s];
+                    row[w >>> 6] |= 1L << w;
+                    for (int b = graph.offset(w), end = graph.offset(w + 1); b < end; b++) {
+                        int c = component[graph.target(b)];
+                        if (c == k) {
+                            loop |= graph.target(b) == w;
+                        } else if (lastMerged[c] != k) {
+                            lastMerged[c] = k;
+                            long[] other = rows[c];
+                            for (int i = 0; i < words; i++) row[i] |= other[i];
+                        }
+                    }
+                }
+                rows[k] = row;
+                cyclic[k] = loop;
+                size = start;
+                k++;
+            }
+        }
+        return new ReachabilityMatrix(graph.isDirected(), nodeIds, component, Arrays.copyOf(cyclic, k),
+                Arrays.copyOf(rows, k));
+    }
+
+    /**
+     * Tells whether the matrix was computed on a directed graph.
+     * @return true for a directed graph
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Returns the number of nodes.
+     * @return the number of nodes
+     */
+    public int nbNodes() {
+        return nodeIds.length;
+    }
+
+    /**
+     * Returns the id of a node.
+     * @param i the index of the node, as in the snapshot
+     * @return the id of the node
+     */
+    public int nodeId(int i) {
+        return nodeIds[i];
+    }
+
+    /**
+     * Returns the index of a node.
+     * @param id the id of the node
+     * @return the index of the node, or -1 if there is no such node
+     */
+    public int indexOf(int id) {
+        int i = Arrays.binarySearch(nodeIds, id);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * Returns the number of strongly connected components, connected components for an undirected graph.
+     * @return the number of components
+     */
+    public int nbComponents() {
+        return rows.length;
+    }
+
+    /**
+     * Returns the component of a node. Components are numbered in reverse topological order: a
+     * component only leads to components with a smaller number.
+     * @param i the index of the node
+     * @return the number of its component
+     */
+    public int component(int i) {
+        return component[i];
+    }
+
+    /**
+     * Tells whether a node reaches another one through at least one arc. A node reaches itself if
+     * it lies on a cycle, a self-loop included.
+     * @param i the index of the first node
+     * @param j the index of the second node
+     * @return true if i reaches j
+     */
+    public boolean reaches(int i, int j) {
+        int c = component[i];
+        if (c == component[j]) return cyclic[c];
+        return (rows[c][j >>> 6] & (1L << j)) != 0;
+    }
+
+    /**
+     * Retrieves the nodes reached by a node.
+     * @param i the index of the node
+     * @return the indexes of the nodes it reaches
+     */
+    public BitSet row(int i) {
+        BitSet row = BitSet.valueOf(rows[component[i]]);
+        if (!cyclic[component[i]]) row.clear(i);
+        return row;
+    }
+
+    /**
+     * Counts the pairs of nodes (i, j) such that i reaches j.
+     * @return the number of pairs
+     */
+    public long nbPairs() {
+        long pairs = 0;
+        for (int i = 0; i < nodeIds.length; i++) {
+            int c = component[i];
+            long count = 0;
+            for (long word : rows[c]) count += Long.bitCount(word);
+            pairs += cyclic[c] ? count : count - 1;
+        }
+        return pairs;
+    }
+
+    /**
+     * Builds the graph holding an edge from every node to every node it reaches, without
+     * self-loops, like {@link Graph#getTransitiveClosure()}. An undirected edge is added once, from
+     * its smallest node.
+     * @return an UndirectedGraph, or a Graph if the matrix was computed on a directed graph
+     */
+    public Graph toGraph() {
+        Graph graph = directed ? new Graph() : new UndirectedGraph();
+        GraphBuilder builder = new GraphBuilder(graph);
+        for (int id : nodeIds) builder.node(id);
+        for (int i = 0; i < nodeIds.length; i++) {
+            long[] row = rows[component[i]];
+            for (int j = directed ? 0 : i + 1; j < nodeIds.length; j++) {
+                if ((row[j >>> 6] & (1L << j)) != 0 && j != i) builder.edge(nodeIds[i], nodeIds[j], DotParser.NO_WEIGHT, null);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Adds to a graph an edge for every pair of nodes (i, j) such that i reaches j and j is not
+     * already a successor of i, without self-loops. An undirected edge is added once, from its
+     * smallest node.
+     * @param graph the graph the matrix was computed on
+     * @param snapshot the snapshot the matrix was computed from
+     */
+    void addMissingEdges(Graph graph, CsrGraph snapshot) {
+        List<Node> nodes = graph.getAllNodes();
+        for (int i = 0; i < nodeIds.length; i++) {
+            long[] row = rows[component[i]];
+            int a = snapshot.offset(i);
+            int end = snapshot.offset(i + 1);
+            for (int j = directed ? 0 : i + 1; j < nodeIds.length; j++) {
+                if ((row[j >>> 6] & (1L << j)) == 0 || j == i) continue;
+                while (a < end && snapshot.target(a) < j) a++;
+                if (a < end && snapshot.target(a) == j) continue;
+                graph.addEdge(new Edge(nodes.get(i), nodes.get(j)));
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package m1graphs2024;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency matrix of a graph in compressed sparse row form, each entry holding the number of edges
+ * from a node to another. Rows and columns are node indexes, nodes being numbered from 0 in
+ * increasing id order, so ids do not have to be contiguous. The entries of row {@code i} are stored
+ * between {@code offsets()[i]} and {@code offsets()[i + 1]}, sorted by column, and the row of every
+ * entry can also be had in coordinate (COO) form through {@link #rows()}.
+ * <p>The matrix of an undirected graph is symmetric, a self-loop counting once on the diagonal. The
+ * arrays returned are those of the matrix, not copies, so that numeric code can use them directly;
+ * they must not be modified.</p>
+ * @author Johan Barçon
+ */
+public class SparseAdjacency {
+    private final boolean directed;
+    private final int[] nodeIds;
+    private final int[] offsets;
+    private final int[] columns;
+    private final int[] counts;
+    private int[] rows;
+
+    private SparseAdjacency(boolean directed, int[] nodeIds, int[] offsets, int[] columns, int[] counts) {
+        this.directed = directed;
+        this.nodeIds = nodeIds;
+        this.offsets = offsets;
+        this.columns = columns;
+        this.counts = counts;
+    }
+
+    /**
+     * Builds the matrix of a snapshot in a single pass over its arcs, which are already grouped by
+     * source and sorted by target: parallel arcs are merged into one entry.
+     * @param graph the snapshot
+     * @return the adjacency matrix of the snapshot
+     */
+    public static SparseAdjacency of(CsrGraph graph) {
+        int n = graph.nbNodes();
+        int[] nodeIds = new int[n];
+        int[] offsets = new int[n + 1];
+        int[] columns = new int[graph.nbArcs()];
+        int[] counts = new int[graph.nbArcs()];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            nodeIds[i] = graph.nodeId(i);
+            for (int a = graph.offset(i), end = graph.offset(i + 1); a < end; a++) {
+                int j = graph.target(a);
+                if (size > offsets[i] && columns[size - 1] == j) {
+                    counts[size - 1]++;
+                } else {
+                    columns[size] = j;
+                    counts[size++] = 1;
+                }
+            }
+            if (!graph.isDirected()) {
+                int loop = Arrays.binarySearch(columns, offsets[i], size, i);
+                if (loop >= 0) counts[loop] /= 2;
+            }
+            offsets[i + 1] = size;
+        }
+        return new SparseAdjacency(graph.isDirected(), nodeIds, offsets,
+                Arrays.copyOf(columns, size), Arrays.copyOf(counts, size));
+    }
+
+    /**
+     * Tells whether the matrix was built from a directed graph.
+     * @return true for a directed graph
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Returns the number of rows, which is the number of nodes.
+     * @return the number of nodes
+     */
+    public int nbNodes() {
+        return nodeIds.length;
+    }
+
+    /**
+     * Returns the number of non-zero entries.
+     * @return the number of entries
+     */
+    public int nbEntries() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the id of the node of a row.
+     * @param i the index of the row
+     * @return the id of the node
+     */
+    public int nodeId(int i) {
+        return nodeIds[i];
+    }
+
+    /**
+     * Returns the row of a node.
+     * @param id the id of the node
+     * @return the index of its row, or -1 if there is no such node
+     */
+    public int indexOf(int id) {
+        int i = Arrays.binarySearch(nodeIds, id);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * Retrieves the ids of the nodes, increasing, indexed by row.
+     * @return the node ids
+     */
+    public int[] nodeIds() {
+        return nodeIds;
+    }
+
+    /**
+     * Retrieves where each row starts in {@link #columns()} and {@link #counts()}.
+     * @return the offsets of the rows, one more than the number of nodes
+     */
+    public int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * Retrieves the column of every entry, increasing within a row.
+     * @return the columns of the entries
+     */
+    public int[] columns() {
+        return columns;
+    }
+
+    /**
+     * Retrieves the value of every entry, the number of edges it stands for.
+     * @return the multiplicities of the entries
+     */
+    public int[] counts() {
+        return counts;
+    }
+
+    /**
+     * Retrieves the row of every entry, which together with {@link #columns()} and
+     * {@link #counts()} gives the matrix in coordinate form. The array is built on the first call.
+     * @return the rows of the entries
+     */
+    public int[] rows() {
+        if (rows == null) {
+            int[] r = new int[columns.length];
+            for (int i = 0; i < nodeIds.length; i++) Arrays.fill(r, offsets[i], offsets[i + 1], i);
+            rows = r;
+        }
+        return rows;
+    }
+
+    /**
+     * Retrieves the number of edges from a node to another.
+     * @param i the row of the first node
+     * @param j the row of the second node
+     * @return the number of edges, 0 if there is none
+     */
+    public int count(int i, int j) {
+        int e = Arrays.binarySearch(columns, offsets[i], offsets[i + 1], j);
+        return e < 0 ? 0 : counts[e];
+    }
+
+    /**
+     * Builds the dense matrix, indexed by row.
+     * @return a 2D integer array of n² entries
+     */
+    public int[][] toDense() {
+        int[][] matrix = new int[nodeIds.length][nodeIds.length];
+        for (int i = 0; i < nodeIds.length; i++) {
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) matrix[i][columns[e]] = counts[e];
+        }
+        return matrix;
+    }
+
+    /**
+     * Builds the bit-packed boolean matrix, telling only whether an entry is non-zero.
+     * @return the boolean matrix
+     */
+    public BitMatrix toBitMatrix() {
+        BitMatrix matrix = new BitMatrix(nodeIds.length);
+        for (int i = 0; i < nodeIds.length; i++) {
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) matrix.set(i, columns[e]);
+        }
+        return matrix;
+    }
+}
@@ -1,9 +1,9 @@
 package m1graphs2024;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Represents an undirected graph data structure, supporting multigraphs (multiple edges between nodes)
@@ -98,21 +98,72 @@ public class UndirectedGraph extends Graph{
 
     @Override
     public List<Edge> getOutEdges(Node n) {
-        List<Edge> out = super.getIncidentEdges(n);
         List<Edge> res = new ArrayList<>();
-        boolean oneOnTwo = true;
-        for (Edge e : out) {
-            if (e.from().equals(e.to())){
-                if (oneOnTwo){
-                    res.add(e);
-                }
-                oneOnTwo = !oneOnTwo;
-            }else {
-                res.add(e);
+        forEachIncident(n, res::add);
+        return res;
+    }
+
+    @Override
+    public int forEachOutEdge(Node n, EdgeConsumer action) {
+        return forEachIncident(n, action);
+    }
+
+    @Override
+    public int forEachInEdge(Node n, EdgeConsumer action) {
+        return forEachIncident(n, action);
+    }
+
+    /**
+     * Visits the edges incident to a node in the order of {@link #getOutEdges(Node)}, without
+     * building any list: the edges are taken as {@link #getAllEdges()} lists them, an edge stored
+     * from both of its nodes being visited once, from the node of smallest id. The edges stored from
+     * other nodes are found through the index of incoming edges, by increasing source id.
+     * @param n the node
+     * @param action the action applied to each edge
+     * @return the number of edges visited, 0 if the node is not in the graph
+     */
+    @Override
+    public int forEachIncident(Node n, EdgeConsumer action) {
+        List<Edge> out = adjacency().get(n);
+        if (out == null) return 0;
+        List<Edge> in = inEdges(n);
+        int id = n.getId();
+        int count = 0;
+        int i = 0;
+        for (; i < in.size() && in.get(i).from().getId() < id; i++) {
+            action.accept(in.get(i));
+            count++;
+        }
+        int loops = 0;
+        for (int j = 0; j < out.size(); j++) {
+            Edge e = out.get(j);
+            if (e.isSelfLoop() ? loops++ % 4 == 0 : !isShadowed(e)) {
+                action.accept(e);
+                count++;
             }
         }
+        for (; i < in.size(); i++) {
+            Edge e = in.get(i);
+            if (e.from().getId() > id && !isShadowed(e)) {
+                action.accept(e);
+                count++;
+            }
+        }
+        return count;
+    }
 
-        return res;
+    /**
+     * Tells whether an edge is left out of {@link #getAllEdges()}, its symmetric being stored from
+     * its target, which comes first.
+     */
+    private boolean isShadowed(Edge e) {
+        if (e.to().getId() >= e.from().getId()) return false;
+        List<Edge> back = adjacency().get(e.to());
+        if (back == null) return false;
+        for (int i = 0; i < back.size(); i++) {
+            if (e.isSymmetricOf(back.get(i))) return true;
+        }
+        return false;
     }
 
     @Override
@@ -138,14 +189,12 @@ public class UndirectedGraph extends Graph{
     @Override
     public List<Node> getSuccessors(Node n) {
         List<Edge> edges = getIncidentEdges(n.getId());
-        Set<Node> successors = new HashSet<>();
+        List<Node> successors = new ArrayList<>(2 * edges.size());
         for (Edge e : edges) {
             successors.add(e.to());
             successors.add(e.from());
         }
-        List<Node> res = new ArrayList<>(successors);
-        Collections.sort(res);
-        return res;
+        return sortedDistinct(successors);
     }
 
     @Override
@@ -164,14 +213,21 @@ public class UndirectedGraph extends Graph{
         return successors;
     }
 
+    /**
+     * Retrieves every edge of the graph once, whether it is stored from one of its nodes or from
+     * both. The symmetric edges already seen are kept in buckets indexed by their endpoints, so
+     * each lookup only compares the parallel edges between the same two nodes.
+     * @return a list of the edges, in the order of their nodes
+     */
     @Override
     public List<Edge> getAllEdges() {
-        List<Edge> edges = new ArrayList<>();
+        Map<Long, List<Edge>> edges = new HashMap<>();
         List<Edge> res = new ArrayList<>();
         boolean oneOnTwo = true;
         for (Node n : getAllNodes()){
-            for (Edge e : getAdjEgList().get(n)){
-                if (!edges.contains(e)){
+            for (Edge e : adjacency().get(n)){
+                List<Edge> seen = edges.get(key(e.from().getId(), e.to().getId()));
+                if (seen == null || !seen.contains(e)){
                     if (e.isSelfLoop()){
                         if (oneOnTwo) {
                             res.add(e);
@@ -180,24 +236,17 @@ public class UndirectedGraph extends Graph{
                     }else res.add(e);
                 }
 
-                if (!e.isSelfLoop())edges.add(e.getSymmetric());
+                if (!e.isSelfLoop()) {
+                    edges.computeIfAbsent(key(e.to().getId(), e.from().getId()), k -> new ArrayList<>()).add(e.getSymmetric());
+                }
             }
             oneOnTwo = true;
         }
         return res;
     }
 
-    @Override
-    public int[][] toAdjMatrix() {
-        int countNodes = nbNodes();
-        int line = 0;
-        int column = 0;
-        int [][] matrix = new int[countNodes][countNodes];
-        for (Edge e: getAllEdges()) {
-            matrix[e.from().getId() - 1][e.to().getId() - 1]++;
-            if (!e.isSelfLoop()) matrix[e.to().getId() - 1][e.from().getId() - 1]++;
-        }
-        return matrix;
+    private static long key(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
     }
 
     @Override
@@ -223,18 +272,35 @@ public class UndirectedGraph extends Graph{
     @Override
     public UndirectedGraph getTransitiveClosure() {
         UndirectedGraph trans = copy().toSimpleGraph();
-        Edge newEdge;
-        List<Node> descendents;
-        for (Node n: trans.getAllNodes()) {
-            descendents = getDescendents(n);
-            for (Node descendent : descendents) {
-                newEdge = new Edge(n.getId(), descendent.getId(), trans);
-                if (!newEdge.isSelfLoop() && !trans.existsEdge(newEdge) && !trans.existsEdge(newEdge.getSymmetric())) {
-                    trans.addEdge(newEdge);
-                }
+        closeTransitively(trans);
+        return trans;
+    }
+
+    /**
+     * Splits the graph into its connected components, numbered as {@link #getComponentLabels()} does.
+     * Each component is a new graph holding its nodes and edges with their weights and colours,
+     * isolated nodes making components of their own.
+     * @return one graph per connected component
+     */
+    public List<UndirectedGraph> getConnectedComponents() {
+        List<Node> nodes = getAllNodes();
+        int[] labels = getComponentLabels(nodes);
+        int[] ids = new int[nodes.size()];
+        List<UndirectedGraph> parts = new ArrayList<>();
+        List<GraphBuilder> builders = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nodes.get(i).getId();
+            if (labels[i] == parts.size()) {
+                parts.add(new UndirectedGraph());
+                builders.add(new GraphBuilder(parts.get(labels[i])));
             }
+            builders.get(labels[i]).node(ids[i]);
         }
-        return trans;
+        for (Edge e : getAllEdges()) {
+            int c = labels[Arrays.binarySearch(ids, e.from().getId())];
+            builders.get(c).edge(e.from().getId(), e.to().getId(), e.isWeighted() ? e.getWeight() : DotParser.NO_WEIGHT, e.getColor());
+        }
+        return parts;
     }
 
 
@@ -258,79 +324,26 @@ public class UndirectedGraph extends Graph{
 
 
     /**
-     * Loads an undirected graph from a DOT file with the specified extension (.gv or .dot).
+     * Loads an undirected graph from a DOT file with the specified extension (.gv or .dot, possibly
+     * followed by .gz). The gzipped version of the file is read when it is the only one present.
      * @param filename the name of the file (without extension) to load
      * @param extension the file extension (.gv or .dot)
      * @return a Graph instance created from the file, or null if the file cannot be read
      */
     public static UndirectedGraph fromDotFile(String filename, String extension) {
+        return fromDotFile(GraphFiles.ressource(filename, extension));
+    }
+
+
+    /**
+     * Loads an undirected graph from a DOT file at any location, gzipped or not.
+     * @param path the path of the file
+     * @return a Graph instance created from the file
+     */
+    public static UndirectedGraph fromDotFile(Path path) {
         UndirectedGraph graph = new UndirectedGraph();
-        String path = "./ressources/" + filename + extension;
-        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
-            String line;
-            boolean inGraph = false;
-            Pattern nodePattern = Pattern.compile("^\\s*(\\d+)\\s*(?:\\[.*\\])?\\s*$");
-            Pattern edgePattern = Pattern.compile("^\\s*(\\d+)\\s*(--{1,2})\\s*(\\d+)(?:\\s*\\[(.*)\\])?\\s*$");
-            Pattern weightPattern = Pattern.compile("label=(\\d+),\\s*len=(\\d+)");
-            Pattern weight2Pattern = Pattern.compile("len=(\\d+)");
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
-                }
-                if (line.startsWith("digraph") || line.startsWith("graph")) {
-                    inGraph = true;
-                    continue;
-                }
-                if (line.equals("}")) {
-                    inGraph = false;
-                    continue;
-                }
-                if (!inGraph) {
-                    continue;
-                }
-                if (line.endsWith(";")) {
-                    line = line.substring(0, line.length() - 1);
-                }
-                Matcher nodeMatcher = nodePattern.matcher(line);
-                if (nodeMatcher.matches()) {
-                    int nodeId = Integer.parseInt(nodeMatcher.group(1));
-                    graph.addNode(nodeId);
-                    continue;
-                }
-                Matcher edgeMatcher = edgePattern.matcher(line);
-                if (edgeMatcher.matches()) {
-                    int fromId = Integer.parseInt(edgeMatcher.group(1));
-                    int toId = Integer.parseInt(edgeMatcher.group(3));
-                    Node from = graph.getNode(fromId);
-                    if (from == null) {
-                        from = new Node(graph, fromId);
-                        graph.addNode(from);
-                    }
-                    Node to = graph.getNode(toId);
-                    if (to == null) {
-                        to = new Node(graph, toId);
-                        graph.addNode(to);
-                    }
-                    Integer weight = null;
-                    String attributes = edgeMatcher.group(4);
-                    if (attributes != null) {
-                        Matcher weightMatcher = weightPattern.matcher(attributes);
-                        Matcher weight2Matcher = weight2Pattern.matcher(attributes);
-                        if (weightMatcher.matches()) {
-                            int labelWeight = Integer.parseInt(weightMatcher.group(1));
-                            int lenWeight = Integer.parseInt(weightMatcher.group(2));
-                            if (labelWeight == lenWeight) {
-                                weight = labelWeight;
-                            }
-                        }
-                        if (weight2Matcher.matches()) {
-                            weight = Integer.parseInt(weight2Matcher.group(1));
-                        }
-                    }
-                    graph.addEdge(new Edge(from, to, weight));
-                }
-            }
+        try {
+            DotParser.parse(path, new GraphBuilder(graph));
         } catch (IOException e) {
             throw new RuntimeException("Error reading DOT file: " + e.getMessage());
         }
@@ -338,39 +351,91 @@ public class UndirectedGraph extends Graph{
     }
 
 
-    @Override
-    public String toDotString() {
-        StringBuilder res = new StringBuilder("# DOT string generated by the 'toDotString' function\n");
-        res.append("graph ").append(getName()).append("{\n\trankdir=LR");
-        List<Node> edgeNodes = getEdgesNodes(getAllEdges());
-        List<Edge> edges = new ArrayList<>();
-        List<Edge> edges1;
-        boolean oneOnTwo = true;
+    /**
+     * Loads an undirected road network from a file in the DIMACS shortest path format
+     * ({@code .gr}). Such files list most roads as two opposite arcs: an arc mirroring an earlier
+     * one, same weight in the other direction, is taken as the same road, every other arc giving
+     * an edge of its own.
+     * @param path the path of the file
+     * @return a Graph instance created from the file
+     */
+    public static UndirectedGraph fromDimacsFile(Path path) { return fromDimacsFile(path, true);}
 
-        for (Node n : getAllNodes()){
-            if (!edgeNodes.contains(n)){
-                res.append("\n\t").append(n.getId());
-                continue;
-            }
-            edges1 = getAdjEgList().get(n);
-            Collections.sort(edges1);
-            for (Edge e : edges1){
-                if (!edges.contains(e)){
-                    if (e.isSelfLoop()){
-                        if (oneOnTwo) {
-                            res.append("\n\t").append(e.toString());
-                        }
-                        oneOnTwo = !oneOnTwo;
-                    }else res.append("\n\t").append(e.toString());
-                }
 
-                if (!e.isSelfLoop())edges.add(e.getSymmetric());
-            }
-            oneOnTwo = true;
+    /**
+     * Loads an undirected graph from a file in the DIMACS shortest path format ({@code .gr}).
+     * @param path the path of the file
+     * @param mirrored true to merge each arc with an earlier unmatched arc of the same weight in the
+     *                 other direction, keeping the earlier one, false to keep every arc as an edge
+     * @return a Graph instance created from the file
+     */
+    public static UndirectedGraph fromDimacsFile(Path path, boolean mirrored) {
+        UndirectedGraph graph = new UndirectedGraph();
+        try {
+            EdgeBuffer arcs = new EdgeBuffer();
+            EdgeListParser.parse(path, EdgeListParser.Format.DIMACS, arcs);
+            arcs.fill(graph, mirrored ? arcs.mirrors() : null);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading DIMACS file: " + e.getMessage());
+        }
+        return graph;
+    }
+
+
+    /**
+     * Loads an undirected graph from a CSV edge list, each line {@code u,v} or {@code u,v,w}
+     * giving an edge, see {@link EdgeListParser}.
+     * @param path the path of the file
+     * @return a Graph instance created from the file
+     */
+    public static UndirectedGraph fromCsvFile(Path path) {
+        UndirectedGraph graph = new UndirectedGraph();
+        try {
+            EdgeListParser.parse(path, EdgeListParser.Format.CSV, new GraphBuilder(graph));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading CSV file: " + e.getMessage());
+        }
+        return graph;
+    }
+
+    /**
+     * Loads an undirected graph from a CSV edge list whose node ids are arbitrary longs. Nodes get
+     * the dense ids given by the mapping, from 1 to the number of nodes when the mapping starts empty.
+     * @param path the path of the file
+     * @param ids the mapping filled with the node ids of the file
+     * @return a Graph instance created from the file
+     */
+    public static UndirectedGraph fromCsvFile(Path path, NodeIdMapping ids) {
+        UndirectedGraph graph = new UndirectedGraph();
+        try {
+            EdgeListParser.parse(path, EdgeListParser.Format.CSV, ids, new GraphBuilder(graph));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading CSV file: " + e.getMessage());
+        }
+        return graph;
+    }
+
+
+    /**
+     * Loads an undirected graph from a binary file with the default .gbin extension.
+     * @param filename the name of the file (without extension) to load
+     * @return a Graph instance created from the file
+     */
+    public static UndirectedGraph fromBinaryFile(String filename) { return fromBinaryFile(filename, ".gbin");}
+
+
+    /**
+     * Loads an undirected graph from a binary file with the specified extension, see {@link CsrGraph}.
+     * @param filename the name of the file (without extension) to load
+     * @param extension the file extension
+     * @return a Graph instance created from the file
+     */
+    public static UndirectedGraph fromBinaryFile(String filename, String extension) {
+        try {
+            return CsrGraph.read(Paths.get("./ressources/" + filename + extension)).fill(new UndirectedGraph());
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading binary file: " + e.getMessage());
         }
-        if (label != null)
-            res.append("\n\tlabel=\"").append(label).append("\"");
-        return res.append("\n}").toString();
     }
 
 }
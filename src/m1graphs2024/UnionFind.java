@@ -0,0 +1,185 @@
+package m1graphs2024;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Disjoint sets of node ids, merged as edges are added, telling in near constant time whether two
+ * nodes are connected and how many components the graph has. Directions are ignored, so the sets
+ * are the weakly connected components of a directed graph. Sets are stored in int arrays indexed
+ * by the rank of insertion of the nodes, merged by rank with path compression; ids are mapped to
+ * their index by a {@link LongIntMap}, so that no Node is ever hashed.
+ * <p>Sets cannot be split: a {@link Graph} drops its union-find when an edge or a node is removed,
+ * and builds a new one from its edges the next time it is queried.</p>
+ * @author Johan Barçon
+ */
+final class UnionFind {
+    private int[] parent;
+    private byte[] rank;
+    private boolean[] hasEdges;
+    private final LongIntMap index;
+    private int size;
+    private int nbComponents;
+    private int nbEdgeComponents;
+    private int smallestId = Integer.MAX_VALUE;
+
+    /**
+     * Creates an empty union-find.
+     * @param capacity the number of nodes expected
+     */
+    UnionFind(int capacity) {
+        int n = Math.max(capacity, 8);
+        parent = new int[n];
+        rank = new byte[n];
+        hasEdges = new boolean[n];
+        index = new LongIntMap(n);
+    }
+
+    /**
+     * Builds the union-find of a graph from its nodes and edges.
+     * @param graph the graph
+     * @return the union-find of its components
+     */
+    static UnionFind of(Graph graph) {
+        List<Node> nodes = graph.getAllNodes();
+        UnionFind components = new UnionFind(nodes.size());
+        for (Node n : nodes) components.add(n.getId());
+        for (Edge e : graph.getAllEdges()) components.union(e.from().getId(), e.to().getId());
+        return components;
+    }
+
+    /**
+     * Retrieves the index of a node.
+     * @param id the id of the node
+     * @return its index, or -1 if it was never added
+     */
+    int indexOf(int id) {
+        return index.get(id);
+    }
+
+    /**
+     * Adds a node as a component of its own, unless it is already there.
+     * @param id the id of the node
+     * @return the index of the node
+     */
+    int add(int id) {
+        int i = index.putIfAbsent(id);
+        if (i < size) return i;
+        if (size == parent.length) grow();
+        parent[size] = size;
+        nbComponents++;
+        smallestId = Math.min(smallestId, id);
+        return size++;
+    }
+
+    /**
+     * Merges the components of the two ends of an edge, adding the nodes if needed.
+     * @param fromId the id of a node of the edge
+     * @param toId the id of the other node
+     */
+    void union(int fromId, int toId) {
+        int a = find(add(fromId));
+        int b = find(add(toId));
+        if (a != b) {
+            nbComponents--;
+            if (hasEdges[a] && hasEdges[b]) nbEdgeComponents--;
+            if (rank[a] < rank[b]) {
+                int t = a;
+                a = b;
+                b = t;
+            } else if (rank[a] == rank[b]) {
+                rank[a]++;
+            }
+            parent[b] = a;
+            hasEdges[a] |= hasEdges[b];
+        }
+        if (!hasEdges[a]) {
+            hasEdges[a] = true;
+            nbEdgeComponents++;
+        }
+    }
+
+    /**
+     * Retrieves the representative of the component of a node, halving the path on the way.
+     * @param i the index of the node
+     * @return the index of the representative
+     */
+    int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Tells whether two nodes are in the same component.
+     * @param uId the id of the first node
+     * @param vId the id of the second node
+     * @return true if both nodes were added and are connected
+     */
+    boolean connected(int uId, int vId) {
+        int u = indexOf(uId);
+        int v = indexOf(vId);
+        return u != -1 && v != -1 && find(u) == find(v);
+    }
+
+    /**
+     * Tells whether the component of a node holds at least one edge.
+     * @param id the id of the node
+     * @return true if the node was added and is connected to an edge
+     */
+    boolean hasEdges(int id) {
+        int i = indexOf(id);
+        return i != -1 && hasEdges[find(i)];
+    }
+
+    /**
+     * Retrieves the number of components, isolated nodes included.
+     * @return the number of components
+     */
+    int nbComponents() {
+        return nbComponents;
+    }
+
+    /**
+     * Retrieves the number of components holding at least one edge.
+     * @return the number of components with edges
+     */
+    int nbEdgeComponents() {
+        return nbEdgeComponents;
+    }
+
+    /**
+     * Numbers the components of some nodes, in the order their first node appears.
+     * @param nodes the nodes to label, all added
+     * @return the component number of every node, from 0 to the number of components met minus one
+     */
+    int[] labels(List<Node> nodes) {
+        int[] rootLabels = new int[size];
+        Arrays.fill(rootLabels, -1);
+        int[] labels = new int[nodes.size()];
+        int count = 0;
+        for (int i = 0; i < labels.length; i++) {
+            int root = find(indexOf(nodes.get(i).getId()));
+            if (rootLabels[root] == -1) rootLabels[root] = count++;
+            labels[i] = rootLabels[root];
+        }
+        return labels;
+    }
+
+    /**
+     * Retrieves the smallest id added.
+     * @return the smallest id, or Integer.MAX_VALUE if no node was added
+     */
+    int smallestId() {
+        return smallestId;
+    }
+
+    private void grow() {
+        int n = 2 * parent.length;
+        parent = Arrays.copyOf(parent, n);
+        rank = Arrays.copyOf(rank, n);
+        hasEdges = Arrays.copyOf(hasEdges, n);
+    }
+}